@@ -0,0 +1,33 @@
+package com.movie_buddy;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// omdb payloads shaped like real responses, used by the benchmarks
+final class CannedResponses {
+
+    static final String DETAIL_TEMPLATE = "{\"Title\":\"Casablanca\",\"Year\":\"1942\",\"Rated\":\"PG\",\"Released\":\"23 Jan 1943\",\"Runtime\":\"102 min\",\"Genre\":\"Drama, Romance, War\",\"Director\":\"Michael Curtiz\",\"Writer\":\"Julius J. Epstein, Philip G. Epstein, Howard Koch\",\"Actors\":\"Humphrey Bogart, Ingrid Bergman, Paul Henreid\",\"Plot\":\"A cynical expatriate American cafe owner struggles to decide whether or not to help his former lover and her fugitive husband escape the Nazis in French Morocco.\",\"Language\":\"English, French, German, Italian\",\"Country\":\"United States\",\"Awards\":\"Won 3 Oscars. 13 wins & 9 nominations total\",\"Poster\":\"https://m.media-amazon.com/images/M/MV5BY2IzZGY2YmEtYzljNS00NTM5LTgwMzUtMzM1NjQ4NGI0OTk0XkEyXkFqcGdeQXVyNDYyMDk5MTU@._V1_SX300.jpg\",\"Ratings\":[{\"Source\":\"Internet Movie Database\",\"Value\":\"8.5/10\"},{\"Source\":\"Rotten Tomatoes\",\"Value\":\"99%\"},{\"Source\":\"Metacritic\",\"Value\":\"100/100\"}],\"Metascore\":\"100\",\"imdbRating\":\"8.5\",\"imdbVotes\":\"587,983\",\"imdbID\":\"{imdbID}\",\"Type\":\"movie\",\"DVD\":\"15 Aug 2008\",\"BoxOffice\":\"$4,219,709\",\"Production\":\"N/A\",\"Website\":\"N/A\",\"Response\":\"True\"}";
+
+    static final String DETAIL = detail("tt0034583");
+
+    static final String SEARCH = search(List.of(
+            "tt0034583", "tt0033467", "tt0111161", "tt0068646", "tt0071562",
+            "tt0468569", "tt0050083", "tt0108052", "tt0167260", "tt0110912"));
+
+    private CannedResponses() {
+    }
+
+    static String detail(String imdbID) {
+        return DETAIL_TEMPLATE.replace("{imdbID}", imdbID);
+    }
+
+    static String search(List<String> imdbIDs) {
+        List<String> results = new ArrayList<>();
+        for (String imdbID : imdbIDs)
+            results.add("{\"Title\":\"Casablanca\",\"Year\":\"1942\",\"imdbID\":\"" + imdbID
+                    + "\",\"Type\":\"movie\",\"Poster\":\"https://m.media-amazon.com/images/M/MV5BY2IzZGY2YmEtYzljNS00NTM5LTgwMzUtMzM1NjQ4NGI0OTk0XkEyXkFqcGdeQXVyNDYyMDk5MTU@._V1_SX300.jpg\"}");
+
+        return "{\"Search\":[" + String.join(",", results) + "],\"totalResults\":\"" + imdbIDs.size()
+                + "\",\"Response\":\"True\"}";
+    }
+}
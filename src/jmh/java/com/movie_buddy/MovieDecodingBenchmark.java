@@ -0,0 +1,65 @@
+package com.movie_buddy;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// cost of turning omdb response bodies into objects, without any I/O, and of
+// the decode a hit on a binary details cache pays
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MovieDecodingBenchmark {
+
+    private Movie movie;
+
+    private byte[] encodedMovie;
+
+    private ByteBuffer offHeapMovie;
+
+    @Setup
+    public void encodeMovie() throws IOException {
+        movie = OmdbResponseReader.readMovie(CannedResponses.DETAIL);
+        encodedMovie = MovieCodec.encode(movie);
+        offHeapMovie = ByteBuffer.allocateDirect(encodedMovie.length).put(encodedMovie).flip();
+    }
+
+    @Benchmark
+    public Movie readMovie() throws IOException {
+        return OmdbResponseReader.readMovie(CannedResponses.DETAIL);
+    }
+
+    @Benchmark
+    public SearchResponse readSearchResponse() throws IOException {
+        return OmdbResponseReader.readSearchResponse(CannedResponses.SEARCH);
+    }
+
+    @Benchmark
+    public Movie decodeBytes() {
+        return MovieCodec.decode(encodedMovie);
+    }
+
+    @Benchmark
+    public Movie decodeOffHeap() {
+        return MovieCodec.decode(offHeapMovie);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return MovieCodec.encode(movie);
+    }
+}
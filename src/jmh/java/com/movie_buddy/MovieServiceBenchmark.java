@@ -0,0 +1,81 @@
+package com.movie_buddy;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// the search and detail pipeline against a local omdb stub.
+// "cold" benchmarks use a fresh title or set of imdbIDs on every invocation so
+// each call goes upstream; "warm" benchmarks repeat one lookup and measure the
+// cached path
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MovieServiceBenchmark {
+
+    private static final List<String> WARM_IDS = List.of(
+            "tt0034583", "tt0033467", "tt0111161", "tt0068646", "tt0071562",
+            "tt0468569", "tt0050083", "tt0108052", "tt0167260", "tt0110912");
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private OmdbStub omdbStub;
+
+    private MovieService movieService;
+
+    @Setup
+    public void setup() throws IOException {
+        omdbStub = new OmdbStub();
+        movieService = omdbStub.movieService();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        omdbStub.close();
+    }
+
+    @Benchmark
+    public List<String> getMoviesWithIdsCold() throws IOException {
+        return movieService.getMoviesWithIds("casablanca " + sequence.incrementAndGet(), "1942");
+    }
+
+    @Benchmark
+    public List<String> getMoviesWithIdsWarm() throws IOException {
+        return movieService.getMoviesWithIds("casablanca", "1942");
+    }
+
+    @Benchmark
+    public List<Movie> getMoviesWithDetailsCold()
+            throws IOException, InterruptedException, ExecutionException {
+        long first = sequence.getAndAdd(WARM_IDS.size());
+        List<String> movieIDs = new ArrayList<>(WARM_IDS.size());
+        for (int i = 0; i < WARM_IDS.size(); i++)
+            movieIDs.add("tt" + (first + i));
+
+        return movieService.getMoviesWithDetails(movieIDs);
+    }
+
+    @Benchmark
+    public List<Movie> getMoviesWithDetailsWarm()
+            throws IOException, InterruptedException, ExecutionException {
+        return movieService.getMoviesWithDetails(WARM_IDS);
+    }
+}
@@ -0,0 +1,51 @@
+package com.movie_buddy;
+
+import java.io.IOException;
+import java.util.Map;
+
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+
+import mockwebserver3.Dispatcher;
+import mockwebserver3.MockResponse;
+import mockwebserver3.MockWebServer;
+import mockwebserver3.RecordedRequest;
+
+// local MockWebServer answering omdb search and detail requests with canned bodies.
+// detail bodies echo the requested imdbID so every distinct id is a distinct movie
+final class OmdbStub implements AutoCloseable {
+
+    private final MockWebServer server = new MockWebServer();
+
+    OmdbStub() throws IOException {
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                String imdbID = request.getRequestUrl().queryParameter("i");
+                String body = imdbID != null ? CannedResponses.detail(imdbID) : CannedResponses.SEARCH;
+
+                return new MockResponse()
+                        .setHeader("Content-Type", "application/json")
+                        .setBody(body);
+            }
+        });
+        server.start();
+    }
+
+    // a MovieService talking to this stub through a real RequestHandler
+    MovieService movieService() {
+        StandardEnvironment environment = new StandardEnvironment();
+        environment.getPropertySources().addFirst(new MapPropertySource("omdbStub", Map.of(
+                "omdb.api.url", server.url("/").toString(),
+                "omdb.api.key", "benchmark")));
+
+        MovieService movieService = new MovieService(environment);
+        movieService.setRequestHandler(new RequestHandler());
+        return movieService;
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+    }
+}
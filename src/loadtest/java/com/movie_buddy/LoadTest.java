@@ -0,0 +1,332 @@
+package com.movie_buddy;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.LockSupport;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.StandardEnvironment;
+
+// end to end load test: boots the application against an OmdbSimulator and
+// drives /movies searches at each rate in loadtest.rates, then reports
+// throughput, latency percentiles and outcomes per rate.
+// arrivals are an open model: searches start at poisson distributed times
+// whether or not earlier ones have finished, and latency is measured from when
+// a search was due, so a stalled server shows up in the percentiles instead of
+// slowing the load down. the first rate at which throughput falls behind, p99
+// passes loadtest.p99-objective or searches start failing is the saturation
+// point.
+// settings are system properties; anything else given with -D, such as
+// omdb.rate-limit.requests-per-second or movie.search.budget, reaches the
+// application
+public final class LoadTest {
+
+    private static final DateTimeFormatter RUN_NAME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    // how a search ended, counted per rate
+    private static final String OK = "ok";
+    private static final String PARTIAL = "partial";
+    private static final String ERROR_PAGE = "error_page";
+    private static final String TIMEOUT = "timeout";
+    private static final String IO_ERROR = "io_error";
+
+    // one search, timed from when it was due rather than when it was sent
+    private record Sample(long due, long completed, String outcome) {
+    }
+
+    // the results of one rate
+    private record Step(double offeredRate, double sentRate, double throughput, long[] latencies,
+            Map<String, Long> outcomes, OmdbSimulator.Stats omdbCalls) {
+
+        long sent() {
+            return latencies.length;
+        }
+
+        long count(String outcome) {
+            return outcomes.getOrDefault(outcome, 0L);
+        }
+
+        // nearest rank, in milliseconds
+        double percentile(double percentile) {
+            if (latencies.length == 0)
+                return 0;
+            int rank = (int) Math.ceil(percentile * latencies.length);
+            return latencies[Math.max(0, rank - 1)] / 1_000_000.0;
+        }
+
+        // searches that got no results page at all
+        long failed() {
+            return sent() - count(OK) - count(PARTIAL) - count(ERROR_PAGE);
+        }
+    }
+
+    private final Environment environment;
+
+    private final OmdbSimulator simulator;
+
+    private final String baseURL;
+
+    private final List<String> queries;
+
+    // cumulative zipf weights over queries, most popular first
+    private final double[] popularity;
+
+    private final HttpClient client;
+
+    private final Duration timeout;
+
+    private final Duration p99Objective;
+
+    private LoadTest(Environment environment, OmdbSimulator simulator, String baseURL, List<String> queries) {
+        this.environment = environment;
+        this.simulator = simulator;
+        this.baseURL = baseURL;
+        this.queries = queries;
+        this.popularity = zipf(queries.size(), environment.getProperty("loadtest.query-skew", Double.class, 1.0));
+        this.timeout = environment.getProperty("loadtest.timeout", Duration.class, Duration.ofSeconds(10));
+        this.p99Objective = environment.getProperty("loadtest.p99-objective", Duration.class, Duration.ofSeconds(2));
+        this.client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(timeout)
+                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        StandardEnvironment environment = new StandardEnvironment();
+        environment.setConversionService(new ApplicationConversionService());
+
+        long seed = environment.getProperty("loadtest.seed", Long.class, 42L);
+        TitleCorpus corpus = new TitleCorpus(environment.getProperty("simulator.corpus-size", Integer.class, 20_000),
+                seed);
+        List<String> queries = corpus.sampleQueries(environment.getProperty("loadtest.queries", Integer.class, 2_000),
+                new Random(seed));
+
+        try (OmdbSimulator simulator = new OmdbSimulator(corpus, environment);
+                ConfigurableApplicationContext application = startApplication(simulator)) {
+            String baseURL = "http://localhost:" + application.getEnvironment().getProperty("local.server.port");
+            System.out.printf("movie-buddy on %s, omdb simulator on %s with %d titles and %d distinct searches%n",
+                    baseURL, simulator.url(), corpus.size(), queries.size());
+
+            new LoadTest(environment, simulator, baseURL, queries).run(seed);
+        }
+    }
+
+    // settings the application needs to run against the simulator, unless given
+    // as system properties. the client side rate limit is lifted by default, as
+    // the simulator is not the real key
+    private static ConfigurableApplicationContext startApplication(OmdbSimulator simulator) {
+        Map<String, String> settings = new TreeMap<>(Map.of(
+                "omdb.api.url", simulator.url(),
+                "omdb.api.key", "loadtest",
+                "omdb.rate-limit.requests-per-second", "100000",
+                "omdb.rate-limit.daily-limit", "1000000000",
+                "server.port", "0",
+                "spring.datasource.url", "jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1",
+                "spring.datasource.username", "sa",
+                "spring.datasource.password", "",
+                "spring.jpa.hibernate.ddl-auto", "create-drop",
+                "logging.level.root", "ERROR"));
+        settings.put("movie.posters.directory", Path.of("target", "loadtest", "posters").toAbsolutePath().toString());
+        settings.put("spring.main.banner-mode", "off");
+
+        List<String> args = new ArrayList<>();
+        settings.forEach((key, value) -> {
+            if (System.getProperty(key) == null)
+                args.add("--" + key + "=" + value);
+        });
+
+        return new SpringApplicationBuilder(MovieBuddyApplication.class).run(args.toArray(String[]::new));
+    }
+
+    private void run(long seed) throws IOException {
+        double[] rates = environment.getProperty("loadtest.rates", double[].class, new double[] { 20, 40, 80, 160 });
+        Duration duration = environment.getProperty("loadtest.duration", Duration.class, Duration.ofSeconds(30));
+        Duration warmup = environment.getProperty("loadtest.warmup", Duration.class, Duration.ofSeconds(10));
+
+        // fills caches and the jit at the first rate; not reported
+        if (!warmup.isZero()) {
+            System.out.printf("warming up at %.0f/s for %s%n", rates[0], warmup);
+            drive(rates[0], warmup, new Random(seed - 1));
+        }
+
+        List<Step> steps = new ArrayList<>();
+        for (int i = 0; i < rates.length; i++) {
+            System.out.printf("driving %.0f/s for %s%n", rates[i], duration);
+            Step step = drive(rates[i], duration, new Random(seed + i));
+            steps.add(step);
+            System.out.println(describe(step));
+        }
+
+        report(steps, duration);
+    }
+
+    private Step drive(double rate, Duration duration, Random random) {
+        OmdbSimulator.Stats omdbBefore = simulator.stats();
+        List<Future<Sample>> samples = new ArrayList<>();
+
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        long due = start;
+        try (ExecutorService searches = Executors.newVirtualThreadPerTaskExecutor()) {
+            while (true) {
+                due += (long) (-Math.log(1 - random.nextDouble()) / rate * 1_000_000_000L);
+                if (due >= end)
+                    break;
+                String query = queries.get(pickQuery(random));
+
+                for (long wait = due - System.nanoTime(); wait > 0; wait = due - System.nanoTime())
+                    LockSupport.parkNanos(wait);
+
+                long scheduled = due;
+                samples.add(searches.submit(() -> {
+                    String outcome = search(query);
+                    return new Sample(scheduled, System.nanoTime(), outcome);
+                }));
+            }
+        }
+
+        // every search has finished once the executor is closed
+        long[] latencies = new long[samples.size()];
+        Map<String, Long> outcomes = new TreeMap<>();
+        long lastCompletion = end;
+        for (int i = 0; i < latencies.length; i++) {
+            Sample sample = samples.get(i).resultNow();
+            latencies[i] = sample.completed() - sample.due();
+            outcomes.merge(sample.outcome(), 1L, Long::sum);
+            lastCompletion = Math.max(lastCompletion, sample.completed());
+        }
+        Arrays.sort(latencies);
+
+        double elapsedSeconds = (lastCompletion - start) / 1e9;
+        double throughput = (outcomes.getOrDefault(OK, 0L) + outcomes.getOrDefault(PARTIAL, 0L)) / elapsedSeconds;
+
+        return new Step(rate, samples.size() / (duration.toNanos() / 1e9), throughput, latencies, outcomes,
+                simulator.stats().minus(omdbBefore));
+    }
+
+    private String search(String query) {
+        URI uri = URI.create(baseURL + "/movies?title=" + URLEncoder.encode(query, StandardCharsets.UTF_8));
+        HttpRequest request = HttpRequest.newBuilder(uri).timeout(timeout).GET().build();
+        try {
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200)
+                return "http_" + response.statusCode();
+            if (response.body().contains("class=\"error\""))
+                return ERROR_PAGE;
+            if (response.body().contains("class=\"missing-results\""))
+                return PARTIAL;
+            return OK;
+        } catch (HttpTimeoutException e) {
+            return TIMEOUT;
+        } catch (IOException e) {
+            return IO_ERROR;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return IO_ERROR;
+        }
+    }
+
+    private int pickQuery(Random random) {
+        int index = Arrays.binarySearch(popularity, random.nextDouble());
+        return Math.min(queries.size() - 1, index >= 0 ? index : -index - 1);
+    }
+
+    private static double[] zipf(int size, double skew) {
+        double[] cumulative = new double[size];
+        double total = 0;
+        for (int rank = 1; rank <= size; rank++) {
+            total += 1 / Math.pow(rank, skew);
+            cumulative[rank - 1] = total;
+        }
+        for (int i = 0; i < size; i++)
+            cumulative[i] /= total;
+        return cumulative;
+    }
+
+    // falling behind the searches sent, slower than the objective, or failing
+    // more than the occasional search. partial pages and error pages are what
+    // the simulator's injected errors and rate limits are expected to cause
+    private boolean saturated(Step step) {
+        return step.throughput() < step.sentRate() * 0.95
+                || step.percentile(0.99) > p99Objective.toMillis()
+                || step.failed() > step.sent() * 0.01;
+    }
+
+    private String describe(Step step) {
+        return String.format("  offered %.1f/s, sent %.1f/s, throughput %.1f/s, p50 %.1fms, p99 %.1fms,"
+                + " p999 %.1fms, max %.1fms, outcomes %s, omdb %s%s",
+                step.offeredRate(), step.sentRate(), step.throughput(), step.percentile(0.5), step.percentile(0.99),
+                step.percentile(0.999), step.percentile(1.0), step.outcomes(), step.omdbCalls(),
+                saturated(step) ? "  << saturated" : "");
+    }
+
+    // a table on the console, and the same as csv under loadtest.report-directory
+    private void report(List<Step> steps, Duration duration) throws IOException {
+        List<String> outcomeNames = steps.stream()
+                .flatMap(step -> step.outcomes().keySet().stream())
+                .distinct()
+                .sorted()
+                .toList();
+
+        System.out.println();
+        System.out.printf("%10s %10s %10s %10s %10s %10s %10s", "offered/s", "sent/s", "tput/s", "p50 ms",
+                "p99 ms", "p999 ms", "max ms");
+        outcomeNames.forEach(outcome -> System.out.printf(" %10s", outcome));
+        System.out.printf(" %10s %10s %10s %10s%n", "omdb srch", "omdb dtl", "omdb 503", "omdb 401");
+        for (Step step : steps) {
+            System.out.printf("%10.1f %10.1f %10.1f %10.1f %10.1f %10.1f %10.1f", step.offeredRate(),
+                    step.sentRate(), step.throughput(), step.percentile(0.5), step.percentile(0.99),
+                    step.percentile(0.999), step.percentile(1.0));
+            outcomeNames.forEach(outcome -> System.out.printf(" %10d", step.count(outcome)));
+            System.out.printf(" %10d %10d %10d %10d%s%n", step.omdbCalls().searches(), step.omdbCalls().details(),
+                    step.omdbCalls().errors(), step.omdbCalls().rateLimited(), saturated(step) ? "  saturated" : "");
+        }
+
+        steps.stream().filter(this::saturated).findFirst().ifPresentOrElse(
+                step -> System.out.printf("%nsaturated at %.0f searches/s%n", step.offeredRate()),
+                () -> System.out.printf("%nnot saturated up to %.0f searches/s%n",
+                        steps.get(steps.size() - 1).offeredRate()));
+
+        Path directory = Path.of(environment.getProperty("loadtest.report-directory", "target/loadtest"));
+        Files.createDirectories(directory);
+        Path file = directory.resolve("loadtest-" + LocalDateTime.now().format(RUN_NAME) + ".csv");
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(file))) {
+            writer.print("offered_rate,sent_rate,throughput,duration_s,p50_ms,p99_ms,p999_ms,max_ms");
+            outcomeNames.forEach(outcome -> writer.print("," + outcome));
+            writer.println(",omdb_searches,omdb_details,omdb_errors,omdb_rate_limited,saturated");
+            for (Step step : steps) {
+                writer.printf("%.2f,%.2f,%.2f,%d,%.3f,%.3f,%.3f,%.3f", step.offeredRate(), step.sentRate(),
+                        step.throughput(), duration.toSeconds(), step.percentile(0.5), step.percentile(0.99),
+                        step.percentile(0.999), step.percentile(1.0));
+                outcomeNames.forEach(outcome -> writer.print("," + step.count(outcome)));
+                writer.printf(",%d,%d,%d,%d,%b%n", step.omdbCalls().searches(), step.omdbCalls().details(),
+                        step.omdbCalls().errors(), step.omdbCalls().rateLimited(), saturated(step));
+            }
+        }
+        System.out.println("report written to " + file.toAbsolutePath());
+    }
+}
@@ -0,0 +1,165 @@
+package com.movie_buddy;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.core.env.Environment;
+
+import mockwebserver3.Dispatcher;
+import mockwebserver3.MockResponse;
+import mockwebserver3.MockWebServer;
+import mockwebserver3.RecordedRequest;
+import okhttp3.HttpUrl;
+
+// a local stand-in for omdb, answering searches and detail lookups from a
+// TitleCorpus the way the real api does: ten results a page, "Movie not found!"
+// for empty searches and a 401 "Request limit reached!" once the key runs out.
+// every answer waits a lognormal delay around simulator.latency.median, and a
+// share of calls fail with a 503 (simulator.error-rate) or a rate limit answer
+// (simulator.rate-limit-rate), so the application sees a slow, flaky upstream
+final class OmdbSimulator implements AutoCloseable {
+
+    private static final int PAGE_SIZE = 10;
+
+    private static final String POSTER = "https://m.media-amazon.com/images/M/MV5BY2IzZGY2YmEtYzljNS00NTM5LTgwMzUtMzM1NjQ4NGI0OTk0XkEyXkFqcGdeQXVyNDYyMDk5MTU@._V1_SX300.jpg";
+
+    private static final String DETAIL_TEMPLATE = "{\"Title\":\"{title}\",\"Year\":\"{year}\",\"Rated\":\"PG\",\"Released\":\"23 Jan {year}\",\"Runtime\":\"102 min\",\"Genre\":\"Drama, Romance, War\",\"Director\":\"Michael Curtiz\",\"Writer\":\"Julius J. Epstein, Philip G. Epstein, Howard Koch\",\"Actors\":\"Humphrey Bogart, Ingrid Bergman, Paul Henreid\",\"Plot\":\"A cynical expatriate American cafe owner struggles to decide whether or not to help his former lover and her fugitive husband escape the Nazis in French Morocco.\",\"Language\":\"English, French, German, Italian\",\"Country\":\"United States\",\"Awards\":\"Won 3 Oscars. 13 wins & 9 nominations total\",\"Poster\":\"" + POSTER + "\",\"Ratings\":[{\"Source\":\"Internet Movie Database\",\"Value\":\"8.5/10\"},{\"Source\":\"Rotten Tomatoes\",\"Value\":\"99%\"},{\"Source\":\"Metacritic\",\"Value\":\"100/100\"}],\"Metascore\":\"100\",\"imdbRating\":\"8.5\",\"imdbVotes\":\"587,983\",\"imdbID\":\"{imdbID}\",\"Type\":\"movie\",\"DVD\":\"15 Aug 2008\",\"BoxOffice\":\"$4,219,709\",\"Production\":\"N/A\",\"Website\":\"N/A\",\"Response\":\"True\"}";
+
+    private static final String NOT_FOUND = "{\"Response\":\"False\",\"Error\":\"Movie not found!\"}";
+
+    private static final String INCORRECT_ID = "{\"Response\":\"False\",\"Error\":\"Incorrect IMDb ID.\"}";
+
+    private static final String LIMIT_REACHED = "{\"Response\":\"False\",\"Error\":\"Request limit reached!\"}";
+
+    // calls answered since startup, by how they were answered
+    record Stats(long searches, long details, long errors, long rateLimited) {
+
+        Stats minus(Stats earlier) {
+            return new Stats(searches - earlier.searches, details - earlier.details,
+                    errors - earlier.errors, rateLimited - earlier.rateLimited);
+        }
+    }
+
+    private final TitleCorpus corpus;
+
+    private final MockWebServer server = new MockWebServer();
+
+    private final double medianMillis;
+
+    private final double sigma;
+
+    private final double errorRate;
+
+    private final double rateLimitRate;
+
+    // calls allowed before every answer is a rate limit one; 0 for no limit
+    private final long dailyLimit;
+
+    private final AtomicLong calls = new AtomicLong();
+
+    private final AtomicLong searches = new AtomicLong();
+
+    private final AtomicLong details = new AtomicLong();
+
+    private final AtomicLong errors = new AtomicLong();
+
+    private final AtomicLong rateLimited = new AtomicLong();
+
+    OmdbSimulator(TitleCorpus corpus, Environment environment) throws IOException {
+        this.corpus = corpus;
+        this.medianMillis = environment.getProperty("simulator.latency.median", Duration.class,
+                Duration.ofMillis(120)).toNanos() / 1_000_000.0;
+        this.sigma = environment.getProperty("simulator.latency.sigma", Double.class, 0.5);
+        this.errorRate = environment.getProperty("simulator.error-rate", Double.class, 0.0);
+        this.rateLimitRate = environment.getProperty("simulator.rate-limit-rate", Double.class, 0.0);
+        this.dailyLimit = environment.getProperty("simulator.daily-limit", Long.class, 0L);
+
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return answer(request.getRequestUrl());
+            }
+        });
+        server.start();
+    }
+
+    String url() {
+        return server.url("/").toString();
+    }
+
+    Stats stats() {
+        return new Stats(searches.get(), details.get(), errors.get(), rateLimited.get());
+    }
+
+    private MockResponse answer(HttpUrl url) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        MockResponse response = new MockResponse()
+                .setHeader("Content-Type", "application/json; charset=utf-8")
+                .setHeadersDelay(latencyMicros(random), TimeUnit.MICROSECONDS);
+
+        long call = calls.incrementAndGet();
+        if ((dailyLimit > 0 && call > dailyLimit) || random.nextDouble() < rateLimitRate) {
+            rateLimited.incrementAndGet();
+            return response.setResponseCode(401).setBody(LIMIT_REACHED);
+        }
+        if (random.nextDouble() < errorRate) {
+            errors.incrementAndGet();
+            return response.setResponseCode(503).setBody("Service Unavailable");
+        }
+
+        String imdbID = url.queryParameter("i");
+        if (imdbID != null) {
+            details.incrementAndGet();
+            return response.setBody(detail(imdbID));
+        }
+
+        searches.incrementAndGet();
+        return response.setBody(search(url.queryParameter("s"), url.queryParameter("y"),
+                url.queryParameter("page")));
+    }
+
+    // lognormal, so most calls land near the median and a long tail does not
+    private long latencyMicros(ThreadLocalRandom random) {
+        return Math.round(medianMillis * Math.exp(sigma * random.nextGaussian()) * 1000);
+    }
+
+    private String detail(String imdbID) {
+        TitleCorpus.Title title = corpus.get(imdbID);
+        if (title == null)
+            return INCORRECT_ID;
+
+        return DETAIL_TEMPLATE.replace("{title}", title.title())
+                .replace("{year}", title.year())
+                .replace("{imdbID}", title.imdbID());
+    }
+
+    private String search(String query, String year, String page) {
+        // what omdb answers a search without a title
+        if (query == null || query.isBlank())
+            return INCORRECT_ID;
+
+        List<TitleCorpus.Title> matches = corpus.search(query, year);
+        int pageNumber = page == null ? 1 : Math.max(1, Integer.parseInt(page));
+        int from = (pageNumber - 1) * PAGE_SIZE;
+        if (from >= matches.size())
+            return NOT_FOUND;
+
+        List<String> results = new ArrayList<>();
+        for (TitleCorpus.Title title : matches.subList(from, Math.min(from + PAGE_SIZE, matches.size())))
+            results.add("{\"Title\":\"" + title.title() + "\",\"Year\":\"" + title.year() + "\",\"imdbID\":\""
+                    + title.imdbID() + "\",\"Type\":\"movie\",\"Poster\":\"" + POSTER + "\"}");
+
+        return "{\"Search\":[" + String.join(",", results) + "],\"totalResults\":\"" + matches.size()
+                + "\",\"Response\":\"True\"}";
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+    }
+}
@@ -0,0 +1,165 @@
+package com.movie_buddy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+// a made up catalogue of movies for the omdb simulator, the same for the same
+// seed. titles are built from a small vocabulary picked with a skew, so common
+// words match hundreds of movies over many pages of results, rare words a
+// handful, and full titles one or two, much like searches against omdb
+final class TitleCorpus {
+
+    record Title(String imdbID, String title, String year) {
+    }
+
+    private static final String[] ADJECTIVES = { "Last", "Dark", "Lost", "Silent", "Great", "Little", "Black",
+            "Secret", "Wild", "Broken", "Hidden", "Golden", "Final", "Red", "Long", "Cold", "Crimson", "Blue",
+            "Forgotten", "Savage", "Endless", "Quiet", "Burning", "Frozen", "Hollow", "Eternal", "Midnight",
+            "Electric", "Distant", "Wicked" };
+
+    private static final String[] NOUNS = { "Night", "Man", "Love", "Day", "House", "City", "World", "Road",
+            "Girl", "King", "Star", "War", "River", "Heart", "Dream", "Storm", "Island", "Shadow", "Sky",
+            "Empire", "Summer", "Ghost", "Game", "Mountain", "Train", "Hunter", "Garden", "Machine", "Queen",
+            "Forest", "Stranger", "Promise", "Ocean", "Kingdom", "Circus", "Mirror", "Harbor", "Desert",
+            "Wolf", "Detective", "Winter", "Bridge", "Sister", "Stone", "Angel", "Voyage", "Hotel", "Letter",
+            "Escape", "Signal" };
+
+    private static final String[] SEQUELS = { "II", "III", "IV", "2", "3" };
+
+    // words omdb matches on but no one searches for alone
+    private static final Set<String> STOP_WORDS = Set.of("the", "of", "and", "a", "in");
+
+    private final List<Title> titles;
+
+    private final Map<String, Title> titlesByID;
+
+    // corpus positions of the titles holding each word, ascending
+    private final Map<String, int[]> titlesByWord;
+
+    TitleCorpus(int size, long seed) {
+        Random random = new Random(seed);
+        this.titles = new ArrayList<>(size);
+        this.titlesByID = new HashMap<>(size * 2);
+
+        Map<String, List<Integer>> positions = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            Title title = new Title(String.format("tt%07d", 1_000_000 + i), makeTitle(random),
+                    String.valueOf(1930 + random.nextInt(95)));
+            titles.add(title);
+            titlesByID.put(title.imdbID(), title);
+
+            for (String word : new LinkedHashSet<>(words(title.title())))
+                positions.computeIfAbsent(word, key -> new ArrayList<>()).add(i);
+        }
+
+        this.titlesByWord = new HashMap<>();
+        positions.forEach((word, list) -> titlesByWord.put(word,
+                list.stream().mapToInt(Integer::intValue).toArray()));
+    }
+
+    int size() {
+        return titles.size();
+    }
+
+    // null when the id is not in the corpus
+    Title get(String imdbID) {
+        return titlesByID.get(imdbID);
+    }
+
+    // titles holding every word of the query, in corpus order. year is ignored
+    // unless it is one
+    List<Title> search(String query, String year) {
+        List<String> words = words(query).stream().filter(word -> !STOP_WORDS.contains(word)).toList();
+        if (words.isEmpty())
+            return List.of();
+
+        int[] matches = null;
+        for (String word : words) {
+            int[] positions = titlesByWord.get(word);
+            if (positions == null)
+                return List.of();
+            matches = matches == null ? positions : intersect(matches, positions);
+        }
+
+        boolean filterYear = year != null && year.matches("\\d{4}");
+        List<Title> results = new ArrayList<>();
+        for (int position : matches) {
+            Title title = titles.get(position);
+            if (!filterYear || title.year().equals(year))
+                results.add(title);
+        }
+        return results;
+    }
+
+    // distinct searches a visitor might type, from single common words to full
+    // titles, in no particular order of popularity
+    List<String> sampleQueries(int count, Random random) {
+        Set<String> queries = new LinkedHashSet<>();
+        for (int attempt = 0; queries.size() < count && attempt < count * 20; attempt++) {
+            Title title = titles.get(skewed(random, titles.size()));
+            if (random.nextBoolean()) {
+                queries.add(title.title());
+            } else {
+                List<String> words = words(title.title()).stream()
+                        .filter(word -> !STOP_WORDS.contains(word))
+                        .toList();
+                queries.add(words.get(random.nextInt(words.size())));
+            }
+        }
+        return new ArrayList<>(queries);
+    }
+
+    private static String makeTitle(Random random) {
+        String adjective = ADJECTIVES[skewed(random, ADJECTIVES.length)];
+        String noun = NOUNS[skewed(random, NOUNS.length)];
+        String other = NOUNS[skewed(random, NOUNS.length)];
+
+        String title = switch (random.nextInt(6)) {
+            case 0 -> "The " + noun;
+            case 1 -> "The " + adjective + " " + noun;
+            case 2 -> noun + " of the " + other;
+            case 3 -> adjective + " " + noun;
+            case 4 -> "The " + noun + " and the " + other;
+            default -> adjective + " " + noun + " " + other;
+        };
+        return random.nextInt(10) == 0 ? title + " " + SEQUELS[random.nextInt(SEQUELS.length)] : title;
+    }
+
+    // favours the front of a list, so a few entries are picked far more often
+    private static int skewed(Random random, int bound) {
+        double u = random.nextDouble();
+        return (int) (bound * u * u);
+    }
+
+    private static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        for (String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{Nd}]+"))
+            if (!word.isEmpty())
+                words.add(word);
+        return words;
+    }
+
+    private static int[] intersect(int[] left, int[] right) {
+        int[] result = new int[Math.min(left.length, right.length)];
+        int count = 0;
+        for (int i = 0, j = 0; i < left.length && j < right.length;) {
+            if (left[i] < right[j])
+                i++;
+            else if (left[i] > right[j])
+                j++;
+            else {
+                result[count++] = left[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+}
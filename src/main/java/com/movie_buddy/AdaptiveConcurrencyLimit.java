@@ -0,0 +1,117 @@
+package com.movie_buddy;
+
+import java.time.Duration;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.core.env.Environment;
+
+// how many omdb calls may be outstanding at once, adjusted from their outcomes
+// with additive increase, multiplicative decrease: each call that comes back
+// faster than omdb.client.slow-call-threshold while the limit was in use raises
+// it by 1/limit, about one per round of calls, and each slow or failed call
+// multiplies it by omdb.client.limit.backoff-ratio. when omdb slows down the
+// limit shrinks within a few calls and calls beyond it are refused right away,
+// instead of queueing behind the slow ones. a call's latency runs from when it
+// was admitted, so time spent waiting in the okhttp dispatcher counts too
+public class AdaptiveConcurrencyLimit {
+
+    private final boolean enabled;
+
+    private final int minimumLimit;
+
+    private final int maximumLimit;
+
+    private final double backoffRatio;
+
+    private final long slowCallNanos;
+
+    // a lock rather than synchronized so calling virtual threads are not pinned
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private double limit;
+
+    private int inFlight;
+
+    public AdaptiveConcurrencyLimit(Environment environment) {
+        this.enabled = environment.getProperty("omdb.client.limit.enabled", Boolean.class, true);
+        this.minimumLimit = environment.getProperty("omdb.client.limit.minimum", Integer.class, 4);
+        this.maximumLimit = environment.getProperty("omdb.client.limit.maximum", Integer.class, 128);
+        this.backoffRatio = environment.getProperty("omdb.client.limit.backoff-ratio", Double.class, 0.9);
+        this.slowCallNanos = environment.getProperty("omdb.client.slow-call-threshold", Duration.class,
+                Duration.ofSeconds(2)).toNanos();
+        this.limit = Math.clamp(environment.getProperty("omdb.client.limit.initial", Integer.class, 32),
+                minimumLimit, maximumLimit);
+    }
+
+    // takes a slot when fewer calls than the limit are outstanding. every slot
+    // taken is given back through exactly one of onSuccess, onFailure or onIgnore
+    public boolean tryAcquire() {
+        lock.lock();
+        try {
+            if (enabled && inFlight >= (int) limit)
+                return false;
+            inFlight++;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void onSuccess(long latencyNanos) {
+        lock.lock();
+        try {
+            // growing only while the limit is in use keeps an idle service from
+            // raising it far beyond what omdb has been shown to handle
+            boolean limited = inFlight * 2 >= limit;
+            inFlight--;
+            if (latencyNanos > slowCallNanos)
+                backOff();
+            else if (limited)
+                limit = Math.min(maximumLimit, limit + 1 / limit);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void onFailure() {
+        lock.lock();
+        try {
+            inFlight--;
+            backOff();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // a call cancelled by its caller says nothing about omdb
+    public void onIgnore() {
+        lock.lock();
+        try {
+            inFlight--;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void backOff() {
+        limit = Math.max(minimumLimit, limit * backoffRatio);
+    }
+}
@@ -0,0 +1,62 @@
+package com.movie_buddy;
+
+import org.springframework.beans.TypeMismatchException;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.web.ErrorResponse;
+import org.springframework.web.ErrorResponseException;
+import org.springframework.web.bind.ServletRequestBindingException;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+// the json api's errors as problem details rather than the error page.
+// ordered ahead of SearchExceptionHandler, which handles the same exceptions
+// for the html controllers
+@RestControllerAdvice(assignableTypes = MoviesApiController.class)
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ApiExceptionHandler {
+
+    // missing parameters, bad batches and the reactive stack's input errors
+    @ExceptionHandler({ ErrorResponseException.class, ServletRequestBindingException.class })
+    public ResponseEntity<ProblemDetail> handleErrorResponse(Exception ex) {
+        ErrorResponse errorResponse = (ErrorResponse) ex;
+        return ResponseEntity.status(errorResponse.getStatusCode()).body(errorResponse.getBody());
+    }
+
+    // such as an unknown searchIn field
+    @ExceptionHandler(TypeMismatchException.class)
+    public ResponseEntity<ProblemDetail> handleTypeMismatchException(TypeMismatchException ex) {
+        return problem(HttpStatus.BAD_REQUEST,
+                "Unsupported value for " + ex.getPropertyName() + ": " + ex.getValue());
+    }
+
+    @ExceptionHandler(HttpMessageNotReadableException.class)
+    public ResponseEntity<ProblemDetail> handleHttpMessageNotReadableException(HttpMessageNotReadableException ex) {
+        return problem(HttpStatus.BAD_REQUEST, "Expected a json array of imdbIDs");
+    }
+
+    // omdb refuses this server's api key until the limit resets
+    @ExceptionHandler(RequestLimitExceededException.class)
+    public ResponseEntity<ProblemDetail> handleRequestLimitExceededException(RequestLimitExceededException ex) {
+        return problem(HttpStatus.SERVICE_UNAVAILABLE, ex.getMessage());
+    }
+
+    // omdb calls are being refused to shed load; Retry-After says when they may
+    // be let through again
+    @ExceptionHandler(UpstreamUnavailableException.class)
+    public ResponseEntity<ProblemDetail> handleUpstreamUnavailableException(UpstreamUnavailableException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER,
+                        String.valueOf(Math.max(1, (ex.getRetryAfter().toMillis() + 999) / 1000)))
+                .body(ProblemDetail.forStatusAndDetail(HttpStatus.SERVICE_UNAVAILABLE, ex.getMessage()));
+    }
+
+    private static ResponseEntity<ProblemDetail> problem(HttpStatus status, String detail) {
+        return ResponseEntity.status(status).body(ProblemDetail.forStatusAndDetail(status, detail));
+    }
+}
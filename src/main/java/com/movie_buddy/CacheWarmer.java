@@ -0,0 +1,208 @@
+package com.movie_buddy;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+
+// keeps the details of commonly searched movies cached so searches rarely wait
+// on omdb.
+// at startup the movie.warmup.titles are searched and their movies loaded before
+// the application reports itself ready for traffic, for at most
+// movie.warmup.timeout. afterwards the seed titles and the most searched titles
+// are revisited every movie.warmup.refresh-interval: movies missing from the
+// details cache are loaded, and movies whose entry expires within
+// movie.warmup.refresh-ahead are fetched again before a search has to.
+// this is background work, so it stops once fewer than
+// movie.warmup.daily-reserve calls are left in the day's omdb budget
+@Component
+public class CacheWarmer implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheWarmer.class);
+
+    // movies of a search whose load was started, and how many of them loaded
+    record WarmUp(int attempted, int loaded) {
+    }
+
+    private final MovieService movieService;
+
+    private final MovieDetailsCache detailsCache;
+
+    private final PopularSearches popularSearches;
+
+    @Autowired(required = false)
+    private OmdbRateLimiter rateLimiter;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry = Metrics.globalRegistry;
+
+    private final boolean enabled;
+
+    private final List<String> seedTitles;
+
+    private final int popularSearchCount;
+
+    private final Duration refreshAhead;
+
+    private final int maxRefreshesPerRun;
+
+    private final long dailyReserve;
+
+    private final Duration warmUpTimeout;
+
+    private final Duration searchBudget;
+
+    public CacheWarmer(MovieService movieService, MovieDetailsCache detailsCache, PopularSearches popularSearches,
+            Environment environment) {
+        this.movieService = movieService;
+        this.detailsCache = detailsCache;
+        this.popularSearches = popularSearches;
+
+        this.enabled = environment.getProperty("movie.warmup.enabled", Boolean.class, true);
+        this.seedTitles = Arrays.stream(environment.getProperty("movie.warmup.titles", String[].class, new String[0]))
+                .map(String::strip)
+                .filter(title -> !title.isEmpty())
+                .toList();
+        this.popularSearchCount = environment.getProperty("movie.warmup.popular-searches", Integer.class, 20);
+        this.refreshAhead = environment.getProperty("movie.warmup.refresh-ahead", Duration.class,
+                Duration.ofHours(1));
+        this.maxRefreshesPerRun = environment.getProperty("movie.warmup.max-refreshes-per-run", Integer.class, 100);
+        this.dailyReserve = environment.getProperty("movie.warmup.daily-reserve", Long.class, 300L);
+        this.warmUpTimeout = environment.getProperty("movie.warmup.timeout", Duration.class, Duration.ofSeconds(30));
+        this.searchBudget = environment.getProperty("movie.search.budget", Duration.class, Duration.ofSeconds(5));
+    }
+
+    public void setRateLimiter(OmdbRateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    public void setMeterRegistry(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    // runners finish before readiness turns to accepting traffic
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled || seedTitles.isEmpty())
+            return;
+
+        long start = System.nanoTime();
+        long deadline = start + warmUpTimeout.toNanos();
+        int warmed = 0;
+        Set<String> visitedIDs = new HashSet<>();
+
+        for (String title : seedTitles) {
+            if (System.nanoTime() > deadline || !hasHeadroom())
+                break;
+
+            warmed += warmSearch(new PopularSearches.Search(title, null), Integer.MAX_VALUE, visitedIDs).loaded();
+        }
+
+        logger.info("Warmed {} movies for {} seed titles in {} ms", warmed, seedTitles.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    @Scheduled(initialDelayString = "${movie.warmup.refresh-interval:PT10M}",
+            fixedDelayString = "${movie.warmup.refresh-interval:PT10M}")
+    public void refreshAhead() {
+        if (!enabled)
+            return;
+
+        Set<PopularSearches.Search> searches = new LinkedHashSet<>();
+        seedTitles.forEach(title -> searches.add(new PopularSearches.Search(title, null)));
+        searches.addAll(popularSearches.top(popularSearchCount));
+
+        int remainingRefreshes = maxRefreshesPerRun;
+        Set<String> visitedIDs = new HashSet<>();
+        for (PopularSearches.Search search : searches) {
+            if (remainingRefreshes <= 0 || !hasHeadroom())
+                break;
+
+            remainingRefreshes -= warmSearch(search, remainingRefreshes, visitedIDs).attempted();
+        }
+    }
+
+    // loads up to limit movies of one search that are missing or about to
+    // expire, one search at a time so background calls never pile up.
+    // movies already visited by another search of the same run are skipped.
+    // attempts count against the run's limit whether or not they succeed, while
+    // only movies actually loaded count as refreshed
+    WarmUp warmSearch(PopularSearches.Search search, int limit, Set<String> visitedIDs) {
+        List<String> movieIDs;
+        try {
+            movieIDs = movieService.findMoviesWithIds(search.title(), search.releaseYear());
+        } catch (IOException | RuntimeException e) {
+            logger.debug("Could not warm the search for {}", search.title(), e);
+            return new WarmUp(0, 0);
+        }
+        if (movieIDs == null)
+            return new WarmUp(0, 0);
+
+        List<String> missingIDs = new ArrayList<>();
+        List<CompletableFuture<Movie>> refreshes = new ArrayList<>();
+
+        for (String movieID : movieIDs) {
+            if (missingIDs.size() + refreshes.size() >= limit)
+                break;
+            if (!visitedIDs.add(movieID))
+                continue;
+
+            if (!detailsCache.contains(movieID))
+                missingIDs.add(movieID);
+            else if (detailsCache.expiresWithin(movieID, refreshAhead))
+                refreshes.add(movieService.fetchMovieWithDetails(movieID));
+        }
+
+        int loaded = 0;
+        try {
+            // missing movies may still be fresh in the movies table
+            if (!missingIDs.isEmpty()) {
+                MovieResults results = movieService.getMovieResults(missingIDs);
+                if (results != null)
+                    loaded += results.movies().size();
+            }
+
+            CompletableFuture.allOf(refreshes.toArray(CompletableFuture[]::new))
+                    .get(searchBudget.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (TimeoutException | ExecutionException e) {
+            logger.debug("Some movies of {} were not refreshed", search.title(), e);
+        } finally {
+            refreshes.forEach(refresh -> refresh.cancel(true));
+        }
+
+        for (CompletableFuture<Movie> refresh : refreshes) {
+            if (refresh.state() == Future.State.SUCCESS && refresh.resultNow() != null)
+                loaded++;
+        }
+
+        meterRegistry.counter("movie.warmup.refreshed").increment(loaded);
+        return new WarmUp(missingIDs.size() + refreshes.size(), loaded);
+    }
+
+    private boolean hasHeadroom() {
+        return rateLimiter == null || rateLimiter.getRemainingToday() > dailyReserve;
+    }
+}
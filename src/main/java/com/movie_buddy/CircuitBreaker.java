@@ -0,0 +1,203 @@
+package com.movie_buddy;
+
+import java.time.Duration;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.core.env.Environment;
+
+// stops calling omdb while most calls are failing, so searches get an answer
+// from what is stored, or an error page, right away rather than after a timeout.
+// closed, it keeps the outcomes of the last omdb.client.breaker.window calls,
+// counting errors and calls slower than omdb.client.slow-call-threshold as
+// failures, and opens once at least omdb.client.breaker.minimum-calls of them
+// fail at omdb.client.breaker.failure-rate-threshold or above. open, every call
+// is refused for omdb.client.breaker.open-duration; then half open, the next
+// omdb.client.breaker.trial-calls calls go through and close it again if all
+// succeed, or open it again as soon as one fails
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final boolean enabled;
+
+    private final int minimumCalls;
+
+    private final double failureRateThreshold;
+
+    private final Duration openDuration;
+
+    private final int trialCalls;
+
+    private final long slowCallNanos;
+
+    // a lock rather than synchronized so calling virtual threads are not pinned
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // outcomes of the latest calls, oldest overwritten first
+    private final boolean[] window;
+
+    private int windowCount;
+
+    private int windowNext;
+
+    private int windowFailures;
+
+    private State state = State.CLOSED;
+
+    private long openedAt;
+
+    private int trialsStarted;
+
+    private int trialsSucceeded;
+
+    private long timesOpened;
+
+    public CircuitBreaker(Environment environment) {
+        this.enabled = environment.getProperty("omdb.client.breaker.enabled", Boolean.class, true);
+        this.window = new boolean[environment.getProperty("omdb.client.breaker.window", Integer.class, 50)];
+        this.minimumCalls = environment.getProperty("omdb.client.breaker.minimum-calls", Integer.class, 20);
+        this.failureRateThreshold = environment.getProperty("omdb.client.breaker.failure-rate-threshold",
+                Double.class, 0.5);
+        this.openDuration = environment.getProperty("omdb.client.breaker.open-duration", Duration.class,
+                Duration.ofSeconds(30));
+        this.trialCalls = environment.getProperty("omdb.client.breaker.trial-calls", Integer.class, 5);
+        this.slowCallNanos = environment.getProperty("omdb.client.slow-call-threshold", Duration.class,
+                Duration.ofSeconds(2)).toNanos();
+    }
+
+    // whether a call may go ahead now. every call allowed is reported back
+    // through exactly one of onSuccess, onFailure or onIgnore
+    public boolean tryAcquire() {
+        if (!enabled)
+            return true;
+
+        lock.lock();
+        try {
+            if (state == State.OPEN && System.nanoTime() - openedAt >= openDuration.toNanos()) {
+                state = State.HALF_OPEN;
+                trialsStarted = 0;
+                trialsSucceeded = 0;
+            }
+
+            return switch (state) {
+                case CLOSED -> true;
+                case OPEN -> false;
+                case HALF_OPEN -> trialsStarted++ < trialCalls;
+            };
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void onSuccess(long latencyNanos) {
+        record(latencyNanos > slowCallNanos);
+    }
+
+    public void onFailure() {
+        record(true);
+    }
+
+    // a cancelled call gives its trial back
+    public void onIgnore() {
+        if (!enabled)
+            return;
+
+        lock.lock();
+        try {
+            if (state == State.HALF_OPEN && trialsStarted > 0)
+                trialsStarted--;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public State getState() {
+        lock.lock();
+        try {
+            return state;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getTimesOpened() {
+        lock.lock();
+        try {
+            return timesOpened;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // until the breaker lets trial calls through, or the full open duration
+    // when it is not open
+    public Duration getRetryAfter() {
+        lock.lock();
+        try {
+            if (state != State.OPEN)
+                return openDuration;
+            long remaining = openDuration.toNanos() - (System.nanoTime() - openedAt);
+            return Duration.ofNanos(Math.max(0, remaining));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void record(boolean failed) {
+        if (!enabled)
+            return;
+
+        lock.lock();
+        try {
+            switch (state) {
+                case HALF_OPEN -> {
+                    if (failed)
+                        open();
+                    else if (++trialsSucceeded >= trialCalls)
+                        close();
+                }
+                case CLOSED -> {
+                    addToWindow(failed);
+                    if (windowCount >= minimumCalls && windowFailures >= windowCount * failureRateThreshold)
+                        open();
+                }
+                // calls allowed before it opened, finishing afterwards
+                case OPEN -> {
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void addToWindow(boolean failed) {
+        if (windowCount == window.length) {
+            if (window[windowNext])
+                windowFailures--;
+        } else {
+            windowCount++;
+        }
+
+        window[windowNext] = failed;
+        if (failed)
+            windowFailures++;
+        windowNext = (windowNext + 1) % window.length;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = System.nanoTime();
+        timesOpened++;
+    }
+
+    // starts over with an empty window, so the failures that opened it do not
+    // count against the recovered service
+    private void close() {
+        state = State.CLOSED;
+        windowCount = 0;
+        windowNext = 0;
+        windowFailures = 0;
+    }
+}
@@ -0,0 +1,107 @@
+package com.movie_buddy;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+// shares one pending request among concurrent callers asking for the same key.
+// every caller gets its own future, so cancelling it only detaches that caller;
+// the shared request is cancelled once all of its callers have detached.
+// a key is forgotten as soon as its request completes, so this only merges
+// requests that overlap in time and never serves a stale result
+public class InFlightRequests<K, V> {
+
+    private final Map<K, Shared<V>> inFlight = new ConcurrentHashMap<>();
+
+    // called for each caller that joined a request already in flight
+    private final Runnable onCoalesced;
+
+    public InFlightRequests(Runnable onCoalesced) {
+        this.onCoalesced = onCoalesced;
+    }
+
+    // the request is started by the first caller for its key, on that caller's
+    // thread, and may complete before this returns
+    public CompletableFuture<V> join(K key, Supplier<CompletableFuture<V>> request) {
+        while (true) {
+            Shared<V> created = new Shared<>();
+            Shared<V> shared = inFlight.putIfAbsent(key, created);
+
+            if (shared == null) {
+                created.attach();
+                start(key, created, request);
+                return caller(created);
+            }
+
+            // lost the race with the last caller detaching; start over
+            if (shared.attach()) {
+                onCoalesced.run();
+                return caller(shared);
+            }
+        }
+    }
+
+    public int size() {
+        return inFlight.size();
+    }
+
+    private void start(K key, Shared<V> shared, Supplier<CompletableFuture<V>> request) {
+        shared.result.whenComplete((value, e) -> inFlight.remove(key, shared));
+
+        CompletableFuture<V> source;
+        try {
+            source = request.get();
+        } catch (RuntimeException e) {
+            shared.result.completeExceptionally(e);
+            return;
+        }
+
+        shared.result.whenComplete((value, e) -> {
+            if (shared.result.isCancelled())
+                source.cancel(true);
+        });
+        source.whenComplete((value, e) -> {
+            if (e != null)
+                shared.result.completeExceptionally(e);
+            else
+                shared.result.complete(value);
+        });
+    }
+
+    private CompletableFuture<V> caller(Shared<V> shared) {
+        CompletableFuture<V> caller = shared.result.copy();
+        caller.whenComplete((value, e) -> {
+            if (caller.isCancelled())
+                shared.detach();
+        });
+        return caller;
+    }
+
+    private static final class Shared<V> {
+
+        private final CompletableFuture<V> result = new CompletableFuture<>();
+
+        private int callers;
+
+        private boolean abandoned;
+
+        synchronized boolean attach() {
+            if (abandoned)
+                return false;
+
+            callers++;
+            return true;
+        }
+
+        void detach() {
+            synchronized (this) {
+                if (--callers > 0 || result.isDone())
+                    return;
+
+                abandoned = true;
+            }
+            result.cancel(true);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.movie_buddy;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+// a SharedCacheStore held in this process. instances built over the same store
+// behave like separate nodes sharing redis, which is how the shared tier is
+// tested; with movie.cache.shared.store=in-memory it also lets a single
+// instance run with the shared tier enabled and nothing else to set up, so it
+// is bounded to movie.cache.shared.maximum-size entries like a redis with an
+// eviction policy. messages are delivered on the publishing thread
+public class InMemoryCacheStore implements SharedCacheStore {
+
+    private record Entry(byte[] value, Duration timeToLive) {
+    }
+
+    private record Subscription(String channel, Consumer<String> listener) {
+    }
+
+    private final Cache<String, Entry> entries;
+
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    public InMemoryCacheStore() {
+        this(10_000);
+    }
+
+    // each entry expires after the time to live it was put with
+    public InMemoryCacheStore(long maximumSize) {
+        this.entries = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new Expiry<String, Entry>() {
+                    @Override
+                    public long expireAfterCreate(String key, Entry entry, long currentTime) {
+                        return entry.timeToLive().toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Entry entry, long currentTime,
+                            long currentDuration) {
+                        return entry.timeToLive().toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Entry entry, long currentTime,
+                            long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
+    @Override
+    public Map<String, byte[]> getAll(List<String> keys) {
+        Map<String, byte[]> values = new HashMap<>();
+        entries.getAllPresent(keys).forEach((key, entry) -> values.put(key, entry.value()));
+        return values;
+    }
+
+    @Override
+    public void put(String key, byte[] value, Duration timeToLive) {
+        entries.put(key, new Entry(value, timeToLive));
+    }
+
+    @Override
+    public void publish(String channel, String message) {
+        for (Subscription subscription : subscriptions) {
+            if (subscription.channel().equals(channel))
+                subscription.listener().accept(message);
+        }
+    }
+
+    @Override
+    public void subscribe(String channel, Consumer<String> listener) {
+        subscriptions.add(new Subscription(channel, listener));
+    }
+
+    @Override
+    public void close() {
+        entries.invalidateAll();
+        subscriptions.clear();
+    }
+}
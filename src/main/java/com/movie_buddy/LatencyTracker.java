@@ -0,0 +1,40 @@
+package com.movie_buddy;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+// rolling window of the most recent upstream latencies.
+// used to pick how long to wait on a detail call before hedging it
+public class LatencyTracker {
+
+    private final long[] samples;
+
+    private int next;
+
+    private int count;
+
+    public LatencyTracker(int windowSize) {
+        this.samples = new long[windowSize];
+    }
+
+    public synchronized void record(Duration latency) {
+        samples[next] = latency.toNanos();
+        next = (next + 1) % samples.length;
+        count = Math.min(count + 1, samples.length);
+    }
+
+    // e.g. percentile(0.95) for p95; zero until a sample has been recorded
+    public Duration percentile(double percentile) {
+        long[] window;
+        synchronized (this) {
+            window = Arrays.copyOf(samples, count);
+        }
+
+        if (window.length == 0)
+            return Duration.ZERO;
+
+        Arrays.sort(window);
+        int index = (int) Math.ceil(percentile * window.length) - 1;
+        return Duration.ofNanos(window[Math.max(0, Math.min(index, window.length - 1))]);
+    }
+}
@@ -1,35 +1,99 @@
 package com.movie_buddy;
 
-import java.util.List;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.function.UnaryOperator;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+
+@JsonIgnoreProperties(ignoreUnknown = true)
+@Entity
+@Table(name = "movies")
 public class Movie {
 
     // properties I care about
+    @Id
     @JsonProperty("imdbID")
     private String imdbID;
 
+    @Column(length = 1000)
     @JsonProperty("Title")
     private String title;
 
+    // "year" is a reserved word in some databases
+    @Column(name = "release_year")
     @JsonProperty("Year")
     private String year;
 
+    @Column(length = 1000)
     @JsonProperty("Poster")
     private String poster;
 
     @JsonProperty("Runtime")
     private String runtime;
 
+    @Column(length = 1000)
     @JsonProperty("Actors")
     private String actors;
 
     @JsonProperty("imdbRating")
     private String imdbRating;
 
+    // volatile since decoded movies are shared across request threads, and
+    // getPlot may fill it in on any of them
+    @Column(length = 2000)
     @JsonProperty("Plot")
-    private String plot;
+    private volatile String plot;
+
+    @JsonProperty("Genre")
+    private String genre;
+
+    @Column(length = 1000)
+    @JsonProperty("Director")
+    private String director;
+
+    // when details were last fetched from omdb, used to decide freshness in the
+    // movies table
+    @JsonIgnore
+    private Instant fetchedAt;
+
+    // the plot as UTF-8 when decoded from MovieCodec's binary form; turned into
+    // a string the first time the plot is read. kept afterwards, so a thread
+    // racing that first read decodes it again rather than finding neither
+    @Transient
+    @JsonIgnore
+    private byte[] encodedPlot;
+
+    @Transient
+    @JsonIgnore
+    private String imdbPage;
+
+    public Movie() {
+    }
+
+    // used by MovieCodec
+    Movie(String imdbID, String title, String year, String poster, String runtime, String actors,
+            String imdbRating, byte[] encodedPlot, String genre, String director, Instant fetchedAt) {
+        this.imdbID = imdbID;
+        this.title = title;
+        this.year = year;
+        this.poster = poster;
+        this.runtime = runtime;
+        this.actors = actors;
+        this.imdbRating = imdbRating;
+        this.encodedPlot = encodedPlot;
+        this.genre = genre;
+        this.director = director;
+        this.fetchedAt = fetchedAt;
+    }
 
     // getters
     public String getImdbID() {
@@ -57,67 +121,65 @@ public class Movie {
     }
 
     public String getPlot() {
-        return this.plot;
+        String decoded = this.plot;
+        if (decoded == null && this.encodedPlot != null) {
+            decoded = new String(this.encodedPlot, StandardCharsets.UTF_8);
+            this.plot = decoded;
+        }
+        return decoded;
     }
 
     public String getPoster() {
         return this.poster;
     }
 
-    public String getImdbPage() {
-        return "https://www.imdb.com/title/" + getImdbID();
+    public String getGenre() {
+        return this.genre;
     }
 
-    // properties I don't care about, included for simplicity when working with
-    // objectMapper
-    @JsonProperty("Rated")
-    private String rated;
-
-    @JsonProperty("Released")
-    private String released;
-
-    @JsonProperty("Genre")
-    private String genre;
-
-    @JsonProperty("Director")
-    private String director;
-
-    @JsonProperty("Writer")
-    private String writer;
-
-    @JsonProperty("Language")
-    private String language;
-
-    @JsonProperty("Country")
-    private String country;
-
-    @JsonProperty("Awards")
-    private String awards;
-
-    @JsonProperty("Ratings")
-    private List<Object> ratings;
+    public String getDirector() {
+        return this.director;
+    }
 
-    @JsonProperty("Metascore")
-    private String metascore;
+    // built once, templates read it several times per movie
+    public String getImdbPage() {
+        if (this.imdbPage == null)
+            this.imdbPage = "https://www.imdb.com/title/" + getImdbID();
+        return this.imdbPage;
+    }
 
-    @JsonProperty("imdbVotes")
-    private String imdbVotes;
+    // replaces values many movies share, like "Drama, Romance" or "1942", with one
+    // shared instance each, so large caches hold a single copy
+    void internRepeatedValues(UnaryOperator<String> interner) {
+        this.year = intern(interner, this.year);
+        this.runtime = intern(interner, this.runtime);
+        this.imdbRating = intern(interner, this.imdbRating);
+        this.genre = intern(interner, this.genre);
+        this.director = intern(interner, this.director);
+        this.poster = "N/A".equals(this.poster) ? intern(interner, this.poster) : this.poster;
+    }
 
-    @JsonProperty("Type")
-    private String type;
+    private static String intern(UnaryOperator<String> interner, String value) {
+        return value == null ? null : interner.apply(value);
+    }
 
-    @JsonProperty("DVD")
-    private String dvd;
+    public Instant getFetchedAt() {
+        return this.fetchedAt;
+    }
 
-    @JsonProperty("BoxOffice")
-    private String boxOffice;
+    public void setFetchedAt(Instant fetchedAt) {
+        this.fetchedAt = fetchedAt;
+    }
 
-    @JsonProperty("Production")
-    private String production;
+    // set only on error responses, such as "Incorrect IMDb ID."
+    @Transient
+    @JsonProperty(value = "Error", access = JsonProperty.Access.WRITE_ONLY)
+    private String error;
 
-    @JsonProperty("Website")
-    private String website;
+    public String getError() {
+        return this.error;
+    }
 
-    @JsonProperty("Response")
-    private String response;
+    // the remaining omdb fields are not mapped; the reader skips them while
+    // parsing instead of binding them to unused properties
 }
@@ -2,12 +2,21 @@ package com.movie_buddy;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class MovieBuddyApplication {
 
+    // enough for every startup step of the full context, lazy or not
+    private static final int STARTUP_STEPS = 4096;
+
     public static void main(String[] args) {
-        SpringApplication.run(MovieBuddyApplication.class, args);
+        SpringApplication application = new SpringApplication(MovieBuddyApplication.class);
+        // startup phase timings, for StartupTimings and /actuator/startup
+        application.setApplicationStartup(new BufferingApplicationStartup(STARTUP_STEPS));
+        application.run(args);
     }
 
 }
@@ -0,0 +1,87 @@
+package com.movie_buddy;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.context.Context;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+// renders a single movie with the movies template, outside of a full page render,
+// so results can be sent to the browser one at a time.
+// rendered cards, and the joined cards of each page of results, are cached by
+// the version of the movies in them: a movie fetched again from omdb has a new
+// fetchedAt, so its old card and the results holding it are no longer looked
+// up and age out. bounded by movie.cache.html.maximum-weight characters and
+// published as cache metrics named movie.html
+@Component
+public class MovieCardRenderer implements MeterBinder {
+
+    private final ITemplateEngine templateEngine;
+
+    private final Cache<String, String> renderedHtml;
+
+    public MovieCardRenderer(ITemplateEngine templateEngine, Environment environment) {
+        this.templateEngine = templateEngine;
+
+        long maximumWeight = environment.getProperty("movie.cache.html.maximum-weight", Long.class, 8_000_000L);
+        Duration timeToLive = environment.getProperty("movie.cache.html.time-to-live", Duration.class,
+                Duration.ofHours(24));
+
+        this.renderedHtml = Caffeine.newBuilder()
+                .maximumWeight(maximumWeight)
+                .weigher((String key, String html) -> key.length() + html.length())
+                .expireAfterWrite(timeToLive)
+                .recordStats()
+                .build();
+    }
+
+    public String render(Movie movie) {
+        return renderedHtml.get("card:" + version(movie), key -> renderUncached(movie));
+    }
+
+    // the cards of a page of results, in order, as one fragment. the cards are
+    // looked up before the results are stored, since caffeine does not allow
+    // loading one entry from within the load of another
+    public String renderAll(List<Movie> movies) {
+        String key = "results:" + version(movies);
+        String results = renderedHtml.getIfPresent(key);
+        if (results == null) {
+            results = movies.stream().map(this::render).collect(Collectors.joining());
+            renderedHtml.put(key, results);
+        }
+        return results;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, renderedHtml, "movie.html");
+    }
+
+    // changes whenever any of the movies is fetched again
+    static String version(List<Movie> movies) {
+        return movies.stream().map(MovieCardRenderer::version).collect(Collectors.joining(","));
+    }
+
+    static String version(Movie movie) {
+        return movie.getFetchedAt() == null
+                ? movie.getImdbID()
+                : movie.getImdbID() + "@" + movie.getFetchedAt().toEpochMilli();
+    }
+
+    private String renderUncached(Movie movie) {
+        Context context = new Context(Locale.getDefault(), Map.of("movieDetails", List.of(movie)));
+        return templateEngine.process("movies", context);
+    }
+}
@@ -0,0 +1,173 @@
+package com.movie_buddy;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// compact binary form of a movie, for caches that hold many of them as bytes.
+// year, runtime and rating are stored as numbers rather than text whenever they
+// have omdb's usual shape ("1942", "102 min", "8.5"), with the text kept for the
+// odd value that does not, so a movie always decodes to the same strings.
+// the plot comes last and is only turned into a string when it is read
+public final class MovieCodec {
+
+    private static final byte VERSION = 1;
+
+    private static final byte ABSENT = 0;
+
+    private static final byte NOT_AVAILABLE = 1;
+
+    private static final byte NUMBER = 2;
+
+    private static final byte TEXT = 3;
+
+    private static final long NO_TIMESTAMP = Long.MIN_VALUE;
+
+    private static final Pattern YEAR = Pattern.compile("([1-9]\\d{3})");
+
+    private static final Pattern RUNTIME = Pattern.compile("([1-9]\\d{0,3}|0) min");
+
+    private static final Pattern RATING = Pattern.compile("([1-9]?\\d)\\.(\\d)");
+
+    private MovieCodec() {
+    }
+
+    public static byte[] encode(Movie movie) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            writeString(out, movie.getImdbID());
+            writeString(out, movie.getTitle());
+            writeString(out, movie.getPoster());
+            writeString(out, movie.getActors());
+            writeString(out, movie.getGenre());
+            writeString(out, movie.getDirector());
+            writeNumber(out, movie.getYear(), YEAR);
+            writeNumber(out, movie.getRuntime(), RUNTIME);
+            writeNumber(out, movie.getImdbRating(), RATING);
+            out.writeLong(movie.getFetchedAt() == null ? NO_TIMESTAMP : movie.getFetchedAt().toEpochMilli());
+            writeString(out, movie.getPlot());
+        } catch (IOException e) {
+            // a ByteArrayOutputStream does not throw
+            throw new UncheckedIOException(e);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    public static Movie decode(byte[] bytes) {
+        return decode(ByteBuffer.wrap(bytes));
+    }
+
+    // reads from the buffer's current position without moving it, so buffers
+    // shared between threads can be decoded concurrently
+    public static Movie decode(ByteBuffer source) {
+        ByteBuffer in = source.duplicate();
+
+        byte version = in.get();
+        if (version != VERSION)
+            throw new IllegalArgumentException("Unknown movie encoding version " + version);
+
+        String imdbID = readString(in);
+        String title = readString(in);
+        String poster = readString(in);
+        String actors = readString(in);
+        String genre = readString(in);
+        String director = readString(in);
+        String year = readYear(in);
+        String runtime = readRuntime(in);
+        String imdbRating = readRating(in);
+        long fetchedAt = in.getLong();
+        byte[] plot = readBytes(in);
+
+        return new Movie(imdbID, title, year, poster, runtime, actors, imdbRating, plot, genre, director,
+                fetchedAt == NO_TIMESTAMP ? null : Instant.ofEpochMilli(fetchedAt));
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    // year and runtime as a short, rating as tenths in a short
+    private static void writeNumber(DataOutputStream out, String value, Pattern shape) throws IOException {
+        if (value == null) {
+            out.writeByte(ABSENT);
+            return;
+        }
+        if (value.equals("N/A")) {
+            out.writeByte(NOT_AVAILABLE);
+            return;
+        }
+
+        Matcher matcher = shape.matcher(value);
+        if (!matcher.matches()) {
+            out.writeByte(TEXT);
+            writeString(out, value);
+            return;
+        }
+
+        int number = Integer.parseInt(matcher.group(1));
+        if (shape == RATING)
+            number = number * 10 + Integer.parseInt(matcher.group(2));
+
+        out.writeByte(NUMBER);
+        out.writeShort(number);
+    }
+
+    private static String readYear(ByteBuffer in) {
+        byte kind = in.get();
+        return kind == NUMBER ? String.valueOf(in.getShort()) : readOther(in, kind);
+    }
+
+    private static String readRuntime(ByteBuffer in) {
+        byte kind = in.get();
+        return kind == NUMBER ? in.getShort() + " min" : readOther(in, kind);
+    }
+
+    private static String readRating(ByteBuffer in) {
+        byte kind = in.get();
+        if (kind != NUMBER)
+            return readOther(in, kind);
+
+        short tenths = in.getShort();
+        return tenths / 10 + "." + tenths % 10;
+    }
+
+    private static String readOther(ByteBuffer in, byte kind) {
+        return switch (kind) {
+            case ABSENT -> null;
+            case NOT_AVAILABLE -> "N/A";
+            case TEXT -> readString(in);
+            default -> throw new IllegalArgumentException("Unknown value kind " + kind);
+        };
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = readBytes(in);
+        return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] readBytes(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0)
+            return null;
+
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,114 @@
+package com.movie_buddy;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+// in-process cache of parsed movie details keyed by imdbID.
+// bounded by entry count and time-to-live; caffeine evicts with W-TinyLFU,
+// so titles that show up in many searches stay resident over one-off lookups.
+// hit, miss and eviction counts are published as cache metrics named movie.details.
+// movie.cache.details.storage picks how entries are held: as movie objects, or
+// in MovieCodec's binary form on the heap or off it, which trades a decode on
+// every hit for a much smaller footprint per movie
+@Component
+public class MovieDetailsCache implements MeterBinder {
+
+    public enum Storage {
+        OBJECTS, BYTES, OFF_HEAP
+    }
+
+    private final Cache<String, Object> cache;
+
+    private final Storage storage;
+
+    public MovieDetailsCache(Environment environment) {
+        long maximumSize = environment.getProperty("movie.cache.details.maximum-size", Long.class, 10_000L);
+        Duration timeToLive = environment.getProperty("movie.cache.details.time-to-live", Duration.class,
+                Duration.ofHours(24));
+        this.storage = environment.getProperty("movie.cache.details.storage", Storage.class, Storage.OBJECTS);
+
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(timeToLive)
+                .recordStats()
+                .build();
+    }
+
+    // returns null on a miss
+    public Movie get(String imdbID) {
+        Object stored = cache.getIfPresent(imdbID);
+        if (stored == null)
+            return null;
+
+        return switch (storage) {
+            case OBJECTS -> (Movie) stored;
+            case BYTES -> MovieCodec.decode((byte[]) stored);
+            case OFF_HEAP -> MovieCodec.decode((ByteBuffer) stored);
+        };
+    }
+
+    public void put(Movie movie) {
+        if (movie == null || movie.getImdbID() == null)
+            return;
+
+        Object stored = switch (storage) {
+            case OBJECTS -> movie;
+            case BYTES -> MovieCodec.encode(movie);
+            case OFF_HEAP -> toDirectBuffer(MovieCodec.encode(movie));
+        };
+        cache.put(movie.getImdbID(), stored);
+    }
+
+    // true when the movie is not cached or its entry expires within the window.
+    // does not count as a hit or miss
+    public boolean expiresWithin(String imdbID, Duration window) {
+        if (!cache.asMap().containsKey(imdbID))
+            return true;
+
+        return cache.policy().expireAfterWrite()
+                .flatMap(expiration -> expiration.ageOf(imdbID)
+                        .map(age -> age.plus(window).compareTo(expiration.getExpiresAfter()) >= 0))
+                .orElse(true);
+    }
+
+    public boolean contains(String imdbID) {
+        return cache.asMap().containsKey(imdbID);
+    }
+
+    public void invalidate(String imdbID) {
+        cache.invalidate(imdbID);
+    }
+
+    // hit, miss and eviction counters since startup
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "movie.details");
+    }
+
+    // freed when the entry is evicted and the buffer collected; bounded overall
+    // by -XX:MaxDirectMemorySize
+    private static ByteBuffer toDirectBuffer(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes).flip();
+        return buffer.asReadOnlyBuffer();
+    }
+}
@@ -0,0 +1,386 @@
+package com.movie_buddy;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.env.Environment;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+// bulk loads a local dataset file into the movies table, so the store and the
+// search index start out knowing millions of titles without an omdb call each.
+// set movie.import.file to run it at startup, before the cache warm-up and the
+// search index load; with movie.import.exit the application stops once the
+// import is done, making it a one-off command.
+// the file is mapped movie.import.chunk-size bytes at a time, cut on line ends,
+// and the chunks are parsed by movie.import.parallelism threads, each writing
+// its movies in jdbc batches of movie.import.batch-size. rows for titles already
+// stored are updated, keeping stored details the file has no value for and
+// never moving a row's fetched_at back.
+// two formats are read: ndjson, one omdb response per line, and imdb-tsv, the
+// title.basics.tsv dump published by imdb, of which only movie.import.title-types
+// are kept. tsv rows lack the details shown on a card, so they are always stored
+// as stale: they seed the search index and stand in while omdb is unavailable,
+// but are fetched again before being shown
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class MovieImporter implements ApplicationRunner, MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(MovieImporter.class);
+
+    public enum Format {
+        NDJSON, IMDB_TSV
+    }
+
+    public record Result(long imported, long skipped, Duration duration) {
+    }
+
+    private static final String COLUMNS = "imdbid, title, release_year, poster, runtime, actors, imdb_rating, "
+            + "plot, genre, director, fetched_at";
+
+    // postgres has its own upsert; every other database gets a standard merge
+    private static final String POSTGRES_UPSERT = "INSERT INTO movies (" + COLUMNS + ") "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) ON CONFLICT (imdbid) DO UPDATE SET "
+            + updates("EXCLUDED", "movies");
+
+    private static final String MERGE = "MERGE INTO movies m USING (SELECT "
+            + Arrays.stream(COLUMNS.split(", "))
+                    .map(column -> column.equals("fetched_at")
+                            ? "CAST(? AS TIMESTAMP WITH TIME ZONE) AS " + column
+                            : "CAST(? AS VARCHAR(2000)) AS " + column)
+                    .collect(Collectors.joining(", "))
+            + ") v ON m.imdbid = v.imdbid "
+            + "WHEN MATCHED THEN UPDATE SET " + updates("v", "m") + " "
+            + "WHEN NOT MATCHED THEN INSERT (" + COLUMNS + ") VALUES ("
+            + Arrays.stream(COLUMNS.split(", ")).map(column -> "v." + column).collect(Collectors.joining(", "))
+            + ")";
+
+    private static final String NULL_FIELD = "\\N";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired(required = false)
+    private ApplicationContext applicationContext;
+
+    private final String file;
+
+    private final String format;
+
+    private final int chunkSize;
+
+    private final int parallelism;
+
+    private final int batchSize;
+
+    private final Set<String> titleTypes;
+
+    private final boolean fresh;
+
+    private final boolean exit;
+
+    private Counter importedRows;
+
+    private Counter skippedRows;
+
+    public MovieImporter(JdbcTemplate jdbcTemplate, Environment environment) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.file = environment.getProperty("movie.import.file", "");
+        this.format = environment.getProperty("movie.import.format", "auto");
+        this.chunkSize = environment.getProperty("movie.import.chunk-size", Integer.class, 64 * 1024 * 1024);
+        this.parallelism = environment.getProperty("movie.import.parallelism", Integer.class,
+                Runtime.getRuntime().availableProcessors());
+        this.batchSize = environment.getProperty("movie.import.batch-size", Integer.class, 1000);
+        this.titleTypes = Arrays.stream(environment.getProperty("movie.import.title-types", String[].class,
+                new String[] { "movie" }))
+                .map(String::strip)
+                .collect(Collectors.toSet());
+        this.fresh = environment.getProperty("movie.import.fresh", Boolean.class, true);
+        this.exit = environment.getProperty("movie.import.exit", Boolean.class, false);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        this.importedRows = Counter.builder("movie.import.rows")
+                .description("Dataset rows imported into the movies table")
+                .tag("result", "imported")
+                .register(registry);
+        this.skippedRows = Counter.builder("movie.import.rows")
+                .description("Dataset rows imported into the movies table")
+                .tag("result", "skipped")
+                .register(registry);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (file.isBlank())
+            return;
+
+        int exitCode = 0;
+        try {
+            importFile(Path.of(file));
+        } catch (IOException | DataAccessException e) {
+            logger.error("Could not import movies from {}", file, e);
+            exitCode = 1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Import of {} was interrupted", file);
+            exitCode = 1;
+        }
+
+        if (exit && applicationContext != null) {
+            int code = exitCode;
+            System.exit(SpringApplication.exit(applicationContext, () -> code));
+        }
+    }
+
+    public Result importFile(Path path) throws IOException, InterruptedException {
+        Format fileFormat = format(path);
+        String upsert = isPostgres() ? POSTGRES_UPSERT : MERGE;
+        Instant fetchedAt = fresh && fileFormat == Format.NDJSON ? Instant.now() : Instant.EPOCH;
+
+        long started = System.nanoTime();
+        AtomicLong imported = new AtomicLong();
+        AtomicLong skipped = new AtomicLong();
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+                ExecutorService executor = Executors.newFixedThreadPool(parallelism)) {
+            long size = channel.size();
+            List<Long> boundaries = chunkBoundaries(channel, size);
+            logger.info("Importing {} ({} bytes, {}) in {} chunks", path, size, fileFormat, boundaries.size() - 1);
+
+            List<Future<?>> chunks = new ArrayList<>();
+            for (int i = 0; i < boundaries.size() - 1; i++) {
+                long start = boundaries.get(i);
+                long end = boundaries.get(i + 1);
+                chunks.add(executor.submit(() -> {
+                    importChunk(channel, start, end, fileFormat, upsert, fetchedAt, imported, skipped);
+                    return null;
+                }));
+            }
+
+            try {
+                for (Future<?> chunk : chunks)
+                    chunk.get();
+            } catch (InterruptedException e) {
+                executor.shutdownNow();
+                throw e;
+            } catch (ExecutionException e) {
+                executor.shutdownNow();
+                if (e.getCause() instanceof IOException cause)
+                    throw cause;
+                if (e.getCause() instanceof RuntimeException cause)
+                    throw cause;
+                throw new IOException("Could not import " + path, e.getCause());
+            }
+        }
+
+        Duration duration = Duration.ofNanos(System.nanoTime() - started);
+        logger.info("Imported {} movies from {} in {} ({} per second), skipped {} rows", imported.get(), path,
+                duration, imported.get() * 1000 / Math.max(1, duration.toMillis()), skipped.get());
+        return new Result(imported.get(), skipped.get(), duration);
+    }
+
+    // chunk start offsets followed by the file size. each chunk after the first
+    // starts just past a line end, so no line is split between two chunks
+    private List<Long> chunkBoundaries(FileChannel channel, long size) throws IOException {
+        List<Long> boundaries = new ArrayList<>();
+        boundaries.add(0L);
+
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        long position = chunkSize;
+        while (position < size) {
+            long lineEnd = -1;
+            while (lineEnd < 0 && position < size) {
+                buffer.clear();
+                int read = channel.read(buffer, position);
+                if (read <= 0)
+                    break;
+                for (int i = 0; i < read; i++) {
+                    if (buffer.get(i) == '\n') {
+                        lineEnd = position + i;
+                        break;
+                    }
+                }
+                if (lineEnd < 0)
+                    position += read;
+            }
+            if (lineEnd < 0 || lineEnd + 1 >= size)
+                break;
+
+            boundaries.add(lineEnd + 1);
+            position = lineEnd + 1 + chunkSize;
+        }
+
+        boundaries.add(size);
+        return boundaries;
+    }
+
+    private void importChunk(FileChannel channel, long start, long end, Format fileFormat, String upsert,
+            Instant fetchedAt, AtomicLong imported, AtomicLong skipped) throws IOException {
+        MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        List<Movie> batch = new ArrayList<>(batchSize);
+        byte[] line = new byte[1024];
+
+        int lineStart = 0;
+        int limit = chunk.limit();
+        for (int i = 0; i <= limit; i++) {
+            if (i < limit && chunk.get(i) != '\n')
+                continue;
+
+            int length = i - lineStart;
+            if (length > 0 && chunk.get(lineStart + length - 1) == '\r')
+                length--;
+            if (length > 0) {
+                if (line.length < length)
+                    line = new byte[Math.max(length, line.length * 2)];
+                chunk.get(lineStart, line, 0, length);
+
+                Movie movie = parse(new String(line, 0, length, StandardCharsets.UTF_8), fileFormat);
+                if (movie == null) {
+                    skipped.incrementAndGet();
+                    if (skippedRows != null)
+                        skippedRows.increment();
+                } else {
+                    movie.setFetchedAt(fetchedAt);
+                    batch.add(movie);
+                    if (batch.size() == batchSize) {
+                        write(batch, upsert, imported);
+                        batch = new ArrayList<>(batchSize);
+                    }
+                }
+            }
+            lineStart = i + 1;
+        }
+
+        if (!batch.isEmpty())
+            write(batch, upsert, imported);
+    }
+
+    // the movie on a line, or null for the tsv header, other title types and
+    // lines that cannot be read
+    Movie parse(String line, Format fileFormat) {
+        if (fileFormat == Format.NDJSON) {
+            try {
+                Movie movie = OmdbResponseReader.readMovie(line);
+                return movie == null || movie.getImdbID() == null ? null : movie;
+            } catch (IOException e) {
+                logger.debug("Skipping unreadable line: {}", line, e);
+                return null;
+            }
+        }
+
+        // tconst, titleType, primaryTitle, originalTitle, isAdult, startYear,
+        // endYear, runtimeMinutes, genres
+        String[] fields = line.split("\t", -1);
+        if (fields.length < 9 || !fields[0].startsWith("tt") || !titleTypes.contains(fields[1]))
+            return null;
+
+        String runtime = value(fields[7]);
+        String genres = value(fields[8]);
+        // in omdb's own form, so imported and fetched movies look the same
+        return new Movie(fields[0], value(fields[2]), value(fields[5]), null,
+                runtime == null ? null : runtime + " min", null, null, null,
+                genres == null ? null : genres.replace(",", ", "), null, null);
+    }
+
+    private static String value(String field) {
+        return field.isEmpty() || field.equals(NULL_FIELD) ? null : field;
+    }
+
+    private void write(List<Movie> batch, String upsert, AtomicLong imported) {
+        jdbcTemplate.batchUpdate(upsert, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement statement, int i) throws SQLException {
+                Movie movie = batch.get(i);
+                statement.setString(1, movie.getImdbID());
+                statement.setString(2, movie.getTitle());
+                statement.setString(3, movie.getYear());
+                statement.setString(4, movie.getPoster());
+                statement.setString(5, movie.getRuntime());
+                statement.setString(6, movie.getActors());
+                statement.setString(7, movie.getImdbRating());
+                statement.setString(8, movie.getPlot());
+                statement.setString(9, movie.getGenre());
+                statement.setString(10, movie.getDirector());
+                if (movie.getFetchedAt() == null)
+                    statement.setNull(11, Types.TIMESTAMP_WITH_TIMEZONE);
+                else
+                    statement.setTimestamp(11, Timestamp.from(movie.getFetchedAt()));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return batch.size();
+            }
+        });
+
+        imported.addAndGet(batch.size());
+        if (importedRows != null)
+            importedRows.increment(batch.size());
+    }
+
+    private Format format(Path path) {
+        if (!format.equalsIgnoreCase("auto"))
+            return Format.valueOf(format.toUpperCase(Locale.ROOT).replace('-', '_'));
+
+        String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        return name.endsWith(".tsv") ? Format.IMDB_TSV : Format.NDJSON;
+    }
+
+    private boolean isPostgres() {
+        String product = jdbcTemplate.execute(
+                (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+        return "PostgreSQL".equalsIgnoreCase(product);
+    }
+
+    // columns the file has no value for keep what is already stored, and
+    // fetched_at only moves forward so a stale import cannot age a fresh row
+    private static String updates(String source, String target) {
+        return Arrays.stream(COLUMNS.split(", "))
+                .filter(column -> !column.equals("imdbid"))
+                .map(column -> column.equals("fetched_at")
+                        ? column + " = CASE WHEN " + target + "." + column + " IS NULL OR " + source + "." + column
+                                + " > " + target + "." + column + " THEN " + source + "." + column + " ELSE "
+                                + target + "." + column + " END"
+                        : column + " = COALESCE(" + source + "." + column + ", " + target + "." + column + ")")
+                .collect(Collectors.joining(", "));
+    }
+}
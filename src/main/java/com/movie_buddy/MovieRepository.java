@@ -0,0 +1,12 @@
+package com.movie_buddy;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface MovieRepository extends JpaRepository<Movie, String> {
+
+    List<Movie> findByImdbIDInAndFetchedAtAfter(Collection<String> imdbIDs, Instant fetchedAfter);
+}
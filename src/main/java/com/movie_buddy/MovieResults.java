@@ -0,0 +1,12 @@
+package com.movie_buddy;
+
+import java.util.List;
+
+// movies whose details arrived within the search budget, plus the imdbIDs of
+// those that timed out or failed and are missing from the page
+public record MovieResults(List<Movie> movies, List<String> missingMovieIDs) {
+
+    public boolean isPartial() {
+        return !missingMovieIDs.isEmpty();
+    }
+}
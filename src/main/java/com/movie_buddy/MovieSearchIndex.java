@@ -0,0 +1,247 @@
+package com.movie_buddy;
+
+import java.text.Normalizer;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+// in-memory inverted index over the movies we hold details for, so searches can
+// be answered without omdb and by fields omdb cannot search, such as actors.
+// each field's words map to the imdbIDs of the movies containing them; a query
+// matches movies containing every one of its words in the searched field.
+// filled from the movies table at startup and kept up to date as details are
+// fetched. only imdbIDs are kept here, details still come from the caches
+@Component
+public class MovieSearchIndex implements MeterBinder {
+
+    public enum Field {
+        TITLE, ACTORS, PLOT, GENRE, DIRECTOR, ANY
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(MovieSearchIndex.class);
+
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private static final Pattern ACCENTS = Pattern.compile("\\p{M}+");
+
+    // "field:word" -> imdbIDs
+    private final Map<String, Set<String>> postings = new ConcurrentHashMap<>();
+
+    private final Map<String, IndexedMovie> movies = new ConcurrentHashMap<>();
+
+    // serializes updates so a movie's postings are replaced as a whole
+    private final ReentrantLock updateLock = new ReentrantLock();
+
+    private final MovieStore movieStore;
+
+    private final boolean backgroundLoad;
+
+    @Autowired(required = false)
+    @Qualifier("applicationTaskExecutor")
+    private AsyncTaskExecutor taskExecutor;
+
+    public MovieSearchIndex(MovieStore movieStore) {
+        this(movieStore, new StandardEnvironment());
+    }
+
+    @Autowired
+    public MovieSearchIndex(MovieStore movieStore, Environment environment) {
+        this.movieStore = movieStore;
+        this.backgroundLoad = environment.getProperty("movie.index.background-load", Boolean.class, false);
+    }
+
+    // ready is only reported once this returns, unless movie.index.background-load
+    // is set; until the load finishes searches fall back to omdb more often
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadStoredMovies() {
+        if (backgroundLoad && taskExecutor != null)
+            taskExecutor.execute(this::indexStoredMovies);
+        else
+            indexStoredMovies();
+    }
+
+    private void indexStoredMovies() {
+        long start = System.nanoTime();
+        movieStore.forEachStored(this::add);
+        logger.info("Indexed {} stored movies in {} ms", size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // adds a movie, replacing what was indexed for its imdbID before
+    public void add(Movie movie) {
+        if (movie == null || movie.getImdbID() == null)
+            return;
+
+        Set<String> terms = new HashSet<>();
+        addTerms(terms, Field.TITLE, movie.getTitle());
+        addTerms(terms, Field.ACTORS, movie.getActors());
+        addTerms(terms, Field.PLOT, movie.getPlot());
+        addTerms(terms, Field.GENRE, movie.getGenre());
+        addTerms(terms, Field.DIRECTOR, movie.getDirector());
+
+        IndexedMovie indexedMovie = new IndexedMovie(movie.getImdbID(), normalize(movie.getTitle()),
+                releaseYear(movie.getYear()), movie.getFetchedAt(), terms);
+
+        updateLock.lock();
+        try {
+            IndexedMovie previous = movies.put(indexedMovie.imdbID(), indexedMovie);
+            if (previous != null)
+                removePostings(previous);
+
+            for (String term : terms)
+                postings.computeIfAbsent(term, key -> ConcurrentHashMap.newKeySet()).add(indexedMovie.imdbID());
+        } finally {
+            updateLock.unlock();
+        }
+    }
+
+    public void remove(String imdbID) {
+        updateLock.lock();
+        try {
+            IndexedMovie previous = movies.remove(imdbID);
+            if (previous != null)
+                removePostings(previous);
+        } finally {
+            updateLock.unlock();
+        }
+    }
+
+    // imdbIDs of movies whose field contains every word of the query, released in
+    // releaseYear when one is given. exact title matches come first, then the
+    // rest by release year
+    public List<String> search(String query, String releaseYear, Field field) {
+        List<String> words = words(query);
+        if (words.isEmpty())
+            return List.of();
+
+        Set<String> matches = null;
+        for (String word : words) {
+            Set<String> wordMatches = matches(field, word);
+            if (matches == null)
+                matches = new HashSet<>(wordMatches);
+            else
+                matches.retainAll(wordMatches);
+
+            if (matches.isEmpty())
+                return List.of();
+        }
+
+        String year = releaseYear == null || releaseYear.isBlank() ? null : releaseYear.strip();
+        String normalizedQuery = String.join(" ", words);
+
+        List<IndexedMovie> results = new ArrayList<>();
+        for (String imdbID : matches) {
+            IndexedMovie indexedMovie = movies.get(imdbID);
+            if (indexedMovie != null && (year == null || year.equals(indexedMovie.releaseYear())))
+                results.add(indexedMovie);
+        }
+
+        results.sort(Comparator
+                .comparing((IndexedMovie indexedMovie) -> !indexedMovie.title().equals(normalizedQuery))
+                .thenComparing(IndexedMovie::releaseYear, Comparator.nullsLast(Comparator.naturalOrder()))
+                .thenComparing(IndexedMovie::imdbID));
+
+        return results.stream().map(IndexedMovie::imdbID).toList();
+    }
+
+    // how many of the given movies were fetched from omdb at or after since
+    public long countFetchedSince(List<String> imdbIDs, Instant since) {
+        return imdbIDs.stream()
+                .map(movies::get)
+                .filter(indexedMovie -> indexedMovie != null && indexedMovie.fetchedAt() != null
+                        && !indexedMovie.fetchedAt().isBefore(since))
+                .count();
+    }
+
+    public int size() {
+        return movies.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("movie.index.size", this, MovieSearchIndex::size)
+                .description("Movies in the local search index")
+                .register(registry);
+    }
+
+    private Set<String> matches(Field field, String word) {
+        if (field != Field.ANY)
+            return postings.getOrDefault(term(field, word), Set.of());
+
+        Set<String> anyField = new HashSet<>();
+        for (Field searchable : Field.values()) {
+            if (searchable != Field.ANY)
+                anyField.addAll(postings.getOrDefault(term(searchable, word), Set.of()));
+        }
+        return anyField;
+    }
+
+    private void removePostings(IndexedMovie indexedMovie) {
+        for (String term : indexedMovie.terms()) {
+            postings.computeIfPresent(term, (key, imdbIDs) -> {
+                imdbIDs.remove(indexedMovie.imdbID());
+                return imdbIDs.isEmpty() ? null : imdbIDs;
+            });
+        }
+    }
+
+    private static void addTerms(Set<String> terms, Field field, String text) {
+        for (String word : words(text))
+            terms.add(term(field, word));
+    }
+
+    private static String term(Field field, String word) {
+        return field.name() + ":" + word;
+    }
+
+    // lower case words with accents removed, so "Amélie" matches "amelie"
+    static List<String> words(String text) {
+        String normalized = normalize(text);
+        if (normalized.isEmpty())
+            return List.of();
+
+        return Arrays.stream(normalized.split(" ")).toList();
+    }
+
+    private static String normalize(String text) {
+        if (text == null || text.equals("N/A"))
+            return "";
+
+        String withoutAccents = ACCENTS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        return NON_WORD.matcher(withoutAccents.toLowerCase(Locale.ROOT)).replaceAll(" ").strip();
+    }
+
+    // omdb years of series look like "2010–2013"; the first year is used
+    private static String releaseYear(String year) {
+        if (year == null || year.length() < 4)
+            return null;
+        return year.substring(0, 4);
+    }
+
+    private record IndexedMovie(String imdbID, String title, String releaseYear, Instant fetchedAt,
+            Set<String> terms) {
+    }
+}
@@ -1,32 +1,121 @@
 package com.movie_buddy;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Service;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import okhttp3.HttpUrl;
 
+// a search is observed as movie.search and its detail fan-out as movie.details,
+// so the omdb.requests spans of each detail call hang off the search that made them
 @Service
 public class MovieService {
 
+    private static final Logger logger = LoggerFactory.getLogger(MovieService.class);
+
+    // results per page of an omdb search, fixed by omdb
+    private static final int OMDB_PAGE_SIZE = 10;
+
     @Autowired
     private Environment environment;
 
     @Autowired
     private RequestHandler requestHandler;
 
+    @Autowired
+    private MovieDetailsCache detailsCache;
+
+    @Autowired
+    private SearchResultsCache searchCache;
+
+    // optional, not set when constructed outside of spring
+    @Autowired(required = false)
+    private MovieStore movieStore;
+
+    @Autowired(required = false)
+    private SharedMovieCache sharedCache;
+
+    @Autowired(required = false)
+    private MovieSearchIndex searchIndex;
+
+    @Autowired(required = false)
+    private PopularSearches popularSearches;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    @Autowired(required = false)
+    private ObservationRegistry observationRegistry;
+
+    // identical searches and detail lookups made at the same time share one call
+    private final InFlightRequests<String, List<String>> inFlightSearches =
+            new InFlightRequests<>(() -> countCoalesced("search"));
+
+    private final InFlightRequests<String, Movie> inFlightDetails =
+            new InFlightRequests<>(() -> countCoalesced("detail"));
+
+    // recent detail call latencies, used to decide when to hedge
+    private final LatencyTracker detailLatencies = new LatencyTracker(1000);
+
+    private final Duration searchBudget;
+
+    private final int maxSearchPages;
+
+    private final int minimumIndexHits;
+
+    private final Duration indexMaxAge;
+
+    private final boolean hedgingEnabled;
+
+    private final Duration minimumHedgeDelay;
+
+    private final double hedgePercentile;
+
     // for
     public MovieService(Environment environment) {
         this.environment = environment;
+        // replaced by the shared bean when managed by spring
+        this.detailsCache = new MovieDetailsCache(environment);
+        this.searchCache = new SearchResultsCache(environment);
+        this.meterRegistry = Metrics.globalRegistry;
+        this.observationRegistry = ObservationRegistry.NOOP;
+
+        this.searchBudget = environment.getProperty("movie.search.budget", Duration.class, Duration.ofSeconds(5));
+        this.maxSearchPages = environment.getProperty("movie.search.max-pages", Integer.class, 1);
+        this.minimumIndexHits = environment.getProperty("movie.index.min-hits", Integer.class, 10);
+        this.indexMaxAge = environment.getProperty("movie.index.max-age", Duration.class, Duration.ofDays(1));
+        this.hedgingEnabled = environment.getProperty("movie.search.hedge.enabled", Boolean.class, false);
+        this.minimumHedgeDelay = environment.getProperty("movie.search.hedge.min-delay", Duration.class,
+                Duration.ofMillis(100));
+        this.hedgePercentile = environment.getProperty("movie.search.hedge.percentile", Double.class, 0.95);
     }
 
     // for injecting a mocked request handler
@@ -34,90 +123,570 @@ public class MovieService {
         this.requestHandler = requestHandler;
     }
 
+    public void setDetailsCache(MovieDetailsCache detailsCache) {
+        this.detailsCache = detailsCache;
+    }
+
+    public void setSearchCache(SearchResultsCache searchCache) {
+        this.searchCache = searchCache;
+    }
+
+    public void setMovieStore(MovieStore movieStore) {
+        this.movieStore = movieStore;
+    }
+
+    public void setSharedCache(SharedMovieCache sharedCache) {
+        this.sharedCache = sharedCache;
+    }
+
+    public void setSearchIndex(MovieSearchIndex searchIndex) {
+        this.searchIndex = searchIndex;
+    }
+
+    public void setPopularSearches(PopularSearches popularSearches) {
+        this.popularSearches = popularSearches;
+    }
+
+    public void setMeterRegistry(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public void setObservationRegistry(ObservationRegistry observationRegistry) {
+        this.observationRegistry = observationRegistry;
+    }
+
     // initial method to gather list of imdbIDs returned from initial get request to
     // omdb
+    // repeated searches, including ones omdb found nothing for, are served from
+    // the search results cache, and titles the local index has at least
+    // movie.index.min-hits matches fetched within movie.index.max-age for are
+    // served from the index
     public List<String> getMoviesWithIds(String title, String releaseYear) throws IOException {
-        String externalRequestURL = getRequestURL(title, releaseYear);
-        String response = requestHandler.getInitialResponse(externalRequestURL);
+        if (popularSearches != null)
+            popularSearches.record(title, releaseYear);
 
-        ObjectMapper objectMapper = new ObjectMapper();
-        List<Movie> movies = null;
-        List<String> movieIDs = null;
+        return findMoviesWithIds(title, releaseYear);
+    }
+
+    // getMoviesWithIds without counting the search as a user's, for background jobs
+    List<String> findMoviesWithIds(String title, String releaseYear) throws IOException {
+        List<String> cachedMovieIDs = searchCache.get(title, releaseYear);
+        if (cachedMovieIDs != null)
+            return cachedMovieIDs.isEmpty() ? null : cachedMovieIDs;
+
+        List<String> indexedMovieIDs = searchIndexedTitles(title, releaseYear);
+        if (indexedMovieIDs != null)
+            return indexedMovieIDs;
+
+        // the first caller searches on its own thread, callers arriving meanwhile
+        // wait for its answer
+        CompletableFuture<List<String>> search = inFlightSearches.join(SearchResultsCache.key(title, releaseYear),
+                () -> {
+                    try {
+                        return CompletableFuture.completedFuture(observeSearch(title, releaseYear));
+                    } catch (IOException e) {
+                        return CompletableFuture.failedFuture(e);
+                    }
+                });
 
         try {
-            JsonNode rootNode = objectMapper.readTree(response);
-            JsonNode searchNode = rootNode.get("Search");
+            return search.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            search.cancel(true);
+            throw new InterruptedIOException("Interrupted while waiting for a search for " + title);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException)
+                throw ioException;
+            if (isRefused(e.getCause()))
+                return searchIndexWhenUnavailable(title, releaseYear, (RuntimeException) e.getCause());
+            if (e.getCause() instanceof RuntimeException runtimeException)
+                throw runtimeException;
+            throw new IllegalStateException(e.getCause());
+        }
+    }
 
-            if (rootNode.has("Error") && rootNode.get("Error").asText().contains("Request limit reached!"))
-                throw new RequestLimitExceededException();
+    // once the request budget is spent, or while omdb is not being called to
+    // shed load, whatever the index has for a title beats an error page, even
+    // with fewer than movie.index.min-hits matches
+    private List<String> searchIndexWhenUnavailable(String title, String releaseYear, RuntimeException refused) {
+        List<String> movieIDs = searchIndex == null
+                ? List.of()
+                : searchIndex.search(title, releaseYear, MovieSearchIndex.Field.TITLE);
+        if (movieIDs.isEmpty())
+            throw refused;
 
-            movies = objectMapper.convertValue(searchNode, new TypeReference<List<Movie>>() {
-            });
+        countIndexSearch("fallback");
+        return movieIDs;
+    }
 
-            if (movies != null)
-                movieIDs = movies.stream().map(movie -> movie.getImdbID()).collect(Collectors.toList());
+    private static boolean isRefused(Throwable cause) {
+        return cause instanceof RequestLimitExceededException || cause instanceof UpstreamUnavailableException;
+    }
 
-        } catch (IOException e) {
-            e.printStackTrace();
+    private List<String> observeSearch(String title, String releaseYear) throws IOException {
+        Observation observation = Observation.createNotStarted("movie.search", observationRegistry).start();
+        try (Observation.Scope scope = observation.openScope()) {
+            return searchMovieIds(title, releaseYear);
+        } catch (IOException | RuntimeException e) {
+            observation.error(e);
+            throw e;
+        } finally {
+            observation.stop();
         }
+    }
+
+    private List<String> searchMovieIds(String title, String releaseYear) throws IOException {
+        String externalRequestURL = getRequestURL(title, releaseYear, 1);
+        String response = requestHandler.getInitialResponse(externalRequestURL);
+
+        return readMovieIds(title, releaseYear, response).join();
+    }
+
+    // getMoviesWithIds without blocking the caller, for the reactive stack.
+    // completes with null when nothing is found
+    public CompletableFuture<List<String>> getMoviesWithIdsAsync(String title, String releaseYear) {
+        if (popularSearches != null)
+            popularSearches.record(title, releaseYear);
+
+        List<String> cachedMovieIDs = searchCache.get(title, releaseYear);
+        if (cachedMovieIDs != null)
+            return CompletableFuture.completedFuture(cachedMovieIDs.isEmpty() ? null : cachedMovieIDs);
 
+        List<String> indexedMovieIDs = searchIndexedTitles(title, releaseYear);
+        if (indexedMovieIDs != null)
+            return CompletableFuture.completedFuture(indexedMovieIDs);
+
+        CompletableFuture<List<String>> search = inFlightSearches.join(SearchResultsCache.key(title, releaseYear),
+                () -> requestHandler.getInitialResponseAsync(getRequestURL(title, releaseYear, 1))
+                        .thenCompose(response -> readMovieIds(title, releaseYear, response)));
+        CompletableFuture<List<String>> movieIDs = search.exceptionally(e -> {
+            Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+            if (isRefused(cause))
+                return searchIndexWhenUnavailable(title, releaseYear, (RuntimeException) cause);
+            throw e instanceof CompletionException completionException
+                    ? completionException
+                    : new CompletionException(e);
+        });
+
+        // cancelling the caller's future detaches it from the shared search
+        movieIDs.whenComplete((ids, e) -> {
+            if (movieIDs.isCancelled())
+                search.cancel(true);
+        });
         return movieIDs;
     }
 
+    // searches by a field other than the title are answered from the local index
+    // alone, since omdb can only search titles. null when nothing matches
+    public List<String> getMoviesWithIds(String query, String releaseYear, MovieSearchIndex.Field field)
+            throws IOException {
+        if (field == MovieSearchIndex.Field.TITLE)
+            return getMoviesWithIds(query, releaseYear);
+
+        if (searchIndex == null)
+            return null;
+
+        List<String> movieIDs = searchIndex.search(query, releaseYear, field);
+        countIndexSearch("local");
+        return movieIDs.isEmpty() ? null : movieIDs;
+    }
+
+    // null when the index has too few matches to stand in for omdb. only movies
+    // fetched within movie.index.max-age count, so a title goes back to omdb at
+    // least that often and new releases are found; rows imported as stale never do
+    private List<String> searchIndexedTitles(String title, String releaseYear) {
+        if (searchIndex == null)
+            return null;
+
+        List<String> movieIDs = searchIndex.search(title, releaseYear, MovieSearchIndex.Field.TITLE);
+        boolean covered = !movieIDs.isEmpty() && movieIDs.size() >= minimumIndexHits
+                && searchIndex.countFetchedSince(movieIDs, Instant.now().minus(indexMaxAge)) >= minimumIndexHits;
+        countIndexSearch(covered ? "hit" : "miss");
+        return covered ? movieIDs : null;
+    }
+
+    private void countIndexSearch(String outcome) {
+        meterRegistry.counter("movie.index.searches", "outcome", outcome).increment();
+    }
+
+    // parses the first page of a search, then fetches the rest of the pages up
+    // to movie.search.max-pages all at once, using totalResults to know how many
+    // there are. completes with the imdbIDs in omdb's order without duplicates,
+    // or null when nothing was found. a page that fails is left out, and the
+    // search is then not cached
+    private CompletableFuture<List<String>> readMovieIds(String title, String releaseYear, String response) {
+        SearchResponse firstPage = readSearchResponse(response);
+
+        if (firstPage == null || firstPage.results() == null) {
+            if (firstPage != null && firstPage.isMovieNotFound())
+                searchCache.putNotFound(title, releaseYear);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        List<CompletableFuture<SearchResponse>> otherPages = IntStream.rangeClosed(2, getPageCount(firstPage))
+                .mapToObj(page -> requestHandler.getInitialResponseAsync(getRequestURL(title, releaseYear, page))
+                        .thenApply(this::readSearchResponse)
+                        .exceptionally(e -> {
+                            logger.warn("Could not fetch page {} of the search for {}", page, title, e);
+                            return null;
+                        }))
+                .toList();
+
+        return CompletableFuture.allOf(otherPages.toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> {
+                    Set<String> movieIDs = new LinkedHashSet<>();
+                    boolean complete = true;
+
+                    addMovieIDs(firstPage, movieIDs);
+                    for (CompletableFuture<SearchResponse> otherPage : otherPages) {
+                        SearchResponse searchResponse = otherPage.join();
+                        if (searchResponse == null || searchResponse.results() == null)
+                            complete = false;
+                        else
+                            addMovieIDs(searchResponse, movieIDs);
+                    }
+
+                    List<String> combinedMovieIDs = List.copyOf(movieIDs);
+                    if (complete)
+                        searchCache.put(title, releaseYear, combinedMovieIDs);
+                    return combinedMovieIDs;
+                });
+    }
+
+    // null when the body cannot be read
+    private SearchResponse readSearchResponse(String response) {
+        SearchResponse searchResponse;
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            searchResponse = OmdbResponseReader.readSearchResponse(response);
+        } catch (IOException e) {
+            logger.warn("Could not read omdb search response", e);
+            return null;
+        } finally {
+            sample.stop(decodeTimer("search"));
+        }
+
+        if (searchResponse.isRequestLimitReached())
+            throw new RequestLimitExceededException();
+
+        return searchResponse;
+    }
+
+    private static void addMovieIDs(SearchResponse searchResponse, Set<String> movieIDs) {
+        searchResponse.results().stream()
+                .map(SearchResponse.Result::imdbID)
+                .forEach(movieIDs::add);
+    }
+
+    // pages to fetch for a search, from the totalResults of its first page
+    private int getPageCount(SearchResponse firstPage) {
+        int totalResults;
+        try {
+            totalResults = Integer.parseInt(firstPage.totalResults());
+        } catch (NumberFormatException e) {
+            return 1;
+        }
+
+        int availablePages = (totalResults + OMDB_PAGE_SIZE - 1) / OMDB_PAGE_SIZE;
+        return Math.max(1, Math.min(maxSearchPages, availablePages));
+    }
+
     // calls getMovieWithDetails to assemble a collection of movies
     // uses async requests via futures and okhttp client
     public List<Movie> getMoviesWithDetails(List<String> movieIDs)
             throws IOException, InterruptedException, ExecutionException {
 
-        List<CompletableFuture<String>> responseFutures;
-        responseFutures = movieIDs.stream()
+        return getMovieResults(movieIDs).movies();
+    }
+
+    // waits for movie details until movie.search.budget runs out. movies that are
+    // still pending by then are cancelled and, like failed lookups, reported as
+    // missing instead of holding up the page
+    public MovieResults getMovieResults(List<String> movieIDs) throws InterruptedException {
+        long deadline = System.nanoTime() + searchBudget.toNanos();
+
+        Observation observation = Observation.createNotStarted("movie.details", observationRegistry)
+                .highCardinalityKeyValue("movies", String.valueOf(movieIDs.size()))
+                .start();
+
+        List<CompletableFuture<Movie>> movieFutures;
+        try (Observation.Scope scope = observation.openScope()) {
+            movieFutures = getMovieFutures(movieIDs);
+        }
+        List<Movie> moviesWithDetails = new ArrayList<>();
+        List<String> missingMovieIDs = new ArrayList<>();
+
+        // the detail calls of one search succeed or fail together: if the waiting
+        // thread is interrupted, every call still in flight is cancelled
+        try {
+            for (int i = 0; i < movieFutures.size(); i++) {
+                try {
+                    long remaining = Math.max(0, deadline - System.nanoTime());
+                    Movie movie = movieFutures.get(i).get(remaining, TimeUnit.NANOSECONDS);
+                    if (movie != null)
+                        moviesWithDetails.add(movie);
+                } catch (ExecutionException e) {
+                    countMissing("failed");
+                    missingMovieIDs.add(movieIDs.get(i));
+                } catch (TimeoutException e) {
+                    countMissing("timeout");
+                    missingMovieIDs.add(movieIDs.get(i));
+                }
+            }
+        } catch (InterruptedException e) {
+            observation.error(e);
+            throw e;
+        } finally {
+            movieFutures.forEach(movieFuture -> movieFuture.cancel(true));
+            observation.stop();
+        }
+
+        return new MovieResults(moviesWithDetails, missingMovieIDs);
+    }
+
+    // details left off a page, by whether their call failed or ran out of budget
+    private void countMissing(String reason) {
+        meterRegistry.counter("movie.details.missing", "reason", reason).increment();
+    }
+
+    // callers that shared a search or detail call already in flight
+    private void countCoalesced(String type) {
+        meterRegistry.counter("movie.requests.coalesced", "type", type).increment();
+    }
+
+    private Timer decodeTimer(String type) {
+        return Timer.builder("omdb.decode")
+                .description("Time spent decoding omdb response bodies")
+                .tag("type", type)
+                .register(meterRegistry);
+    }
+
+    // one future per imdbID, in the same order, each completing as soon as that
+    // movie's details are available. movies already in the details cache or fresh
+    // in the movies table are served without a request.
+    // a future completes with null when omdb has no details for its imdbID
+    public List<CompletableFuture<Movie>> getMovieFutures(List<String> movieIDs) {
+        Map<String, Movie> knownMovies = getKnownMovies(movieIDs);
+
+        return movieIDs.stream()
                 .map(movieID -> {
-                    String detailsURL = getDetailsURL(movieID);
-                    return requestHandler.getDetailedResponse(detailsURL);
+                    Movie knownMovie = knownMovies.get(movieID);
+                    if (knownMovie != null)
+                        return CompletableFuture.completedFuture(knownMovie);
+
+                    return fetchMovieWithDetails(movieID);
                 })
                 .collect(Collectors.toList());
+    }
 
-        List<Movie> moviesWithDetails = responseFutures.stream()
-                .map(responseFuture -> {
-                    try {
-                        String responseBody = responseFuture.get();
-                        return getMovieWithDetails(responseBody);
-                    } catch (InterruptedException | ExecutionException | IOException e) {
-                        return null;
-                    }
+    // looks movies up in the details cache, then the cache shared between
+    // instances, then reads any misses from the movies table in a single query.
+    // blocks on the shared cache and the database when a movie is not cached
+    public Map<String, Movie> getKnownMovies(List<String> movieIDs) {
+        Map<String, Movie> knownMovies = new HashMap<>();
+        List<String> uncachedIDs = new ArrayList<>();
 
-                }).filter(Objects::nonNull)
-                .collect(Collectors.toList());
+        for (String movieID : movieIDs) {
+            Movie cachedMovie = detailsCache.get(movieID);
+            if (cachedMovie != null)
+                knownMovies.put(movieID, cachedMovie);
+            else
+                uncachedIDs.add(movieID);
+        }
+
+        if (sharedCache != null && sharedCache.isEnabled() && !uncachedIDs.isEmpty()) {
+            sharedCache.getAll(uncachedIDs).forEach((movieID, sharedMovie) -> {
+                detailsCache.put(sharedMovie);
+                knownMovies.put(movieID, sharedMovie);
+            });
+            uncachedIDs.removeAll(knownMovies.keySet());
+        }
+
+        if (movieStore != null && !uncachedIDs.isEmpty()) {
+            movieStore.findFresh(uncachedIDs).forEach((movieID, storedMovie) -> {
+                detailsCache.put(storedMovie);
+                if (sharedCache != null)
+                    sharedCache.put(storedMovie);
+                knownMovies.put(movieID, storedMovie);
+            });
+        }
+
+        return knownMovies;
+    }
+
+    // requests one movie's details from omdb; completes with null when omdb has none.
+    // cancelling the returned future only abandons the call once every search
+    // waiting on it has done the same
+    public CompletableFuture<Movie> fetchMovieWithDetails(String movieID) {
+        return inFlightDetails.join(movieID, () -> requestMovieWithDetails(movieID));
+    }
+
+    private CompletableFuture<Movie> requestMovieWithDetails(String movieID) {
+        String detailsURL = getDetailsURL(movieID);
+
+        CompletableFuture<String> responseFuture = hedgingEnabled
+                ? getHedgedResponse(detailsURL, getHedgeDelay())
+                : getTimedResponse(detailsURL);
+        CompletableFuture<Movie> movieFuture = responseFuture
+                .thenApply(this::getMovieWithDetails)
+                .thenApply(movie -> {
+                    // also versions the movie's rendered card
+                    if (movie != null)
+                        movie.setFetchedAt(Instant.now());
+                    detailsCache.put(movie);
+                    if (sharedCache != null)
+                        sharedCache.update(movie);
+                    if (movieStore != null)
+                        movieStore.save(movie);
+                    if (searchIndex != null)
+                        searchIndex.add(movie);
+                    return movie;
+                })
+                .exceptionally(e -> getStoredMovieWhenUnavailable(movieID, e));
+
+        // cancelling the movie cancels the request behind it
+        movieFuture.whenComplete((movie, e) -> {
+            if (movieFuture.isCancelled())
+                responseFuture.cancel(true);
+        });
+
+        return movieFuture;
+    }
+
+    // once the request budget is spent, or while omdb calls are being refused
+    // to shed load, stale details from the movies table are served rather than
+    // leaving the movie out. other failures pass through
+    private Movie getStoredMovieWhenUnavailable(String movieID, Throwable failure) {
+        Throwable cause = failure instanceof CompletionException ? failure.getCause() : failure;
+
+        if ((cause instanceof RequestLimitExceededException || cause instanceof UpstreamUnavailableException)
+                && movieStore != null) {
+            Movie storedMovie = movieStore.findStored(movieID);
+            if (storedMovie != null)
+                return storedMovie;
+        }
+
+        throw failure instanceof CompletionException completionException
+                ? completionException
+                : new CompletionException(failure);
+    }
 
-        return moviesWithDetails;
+    // a detail call whose latency is recorded when it succeeds
+    private CompletableFuture<String> getTimedResponse(String detailsURL) {
+        long start = System.nanoTime();
+
+        CompletableFuture<String> responseFuture = requestHandler.getDetailedResponse(detailsURL);
+        responseFuture.thenRun(() -> detailLatencies.record(Duration.ofNanos(System.nanoTime() - start)));
+
+        return responseFuture;
+    }
+
+    // sends a duplicate request when the first has not answered within hedgeDelay.
+    // the first successful response wins and the other request is cancelled; the
+    // result only fails once every request sent has failed
+    private CompletableFuture<String> getHedgedResponse(String detailsURL, Duration hedgeDelay) {
+        CompletableFuture<String> response = new CompletableFuture<>();
+        List<CompletableFuture<String>> attempts = new CopyOnWriteArrayList<>();
+        AtomicInteger pendingAttempts = new AtomicInteger(1);
+
+        Consumer<CompletableFuture<String>> track = attempt -> {
+            attempts.add(attempt);
+            attempt.whenComplete((body, e) -> {
+                if (e == null) {
+                    attempts.forEach(other -> other.cancel(true));
+                    response.complete(body);
+                } else if (pendingAttempts.decrementAndGet() == 0)
+                    response.completeExceptionally(e);
+            });
+        };
+
+        track.accept(getTimedResponse(detailsURL));
+
+        // the duplicate is sent from a timer thread, so it is put back under the
+        // observation of the search it belongs to
+        Observation parent = observationRegistry.getCurrentObservation();
+        Runnable hedge = () -> {
+            if (response.isDone())
+                return;
+
+            pendingAttempts.incrementAndGet();
+            CompletableFuture<String> duplicate = getTimedResponse(detailsURL);
+            track.accept(duplicate);
+            // the response may have completed while the duplicate was being sent,
+            // after cancelling the attempts it knew of
+            if (response.isDone())
+                duplicate.cancel(true);
+        };
+        CompletableFuture.delayedExecutor(hedgeDelay.toNanos(), TimeUnit.NANOSECONDS)
+                .execute(parent != null ? parent.wrap(hedge) : hedge);
+
+        // also covers the response itself being cancelled
+        response.whenComplete((body, e) -> attempts.forEach(attempt -> attempt.cancel(true)));
+
+        return response;
+    }
+
+    // the configured percentile of recent detail latencies, but never less than
+    // movie.search.hedge.min-delay so a cold or very fast window does not double
+    // every request
+    private Duration getHedgeDelay() {
+        Duration percentileLatency = detailLatencies.percentile(hedgePercentile);
+        return percentileLatency.compareTo(minimumHedgeDelay) > 0 ? percentileLatency : minimumHedgeDelay;
     }
 
     // map response body to a movie object
-    private Movie getMovieWithDetails(String responseBody) throws IOException {
-        ObjectMapper objectMapper = new ObjectMapper();
+    // error responses, such as an unknown imdbID, map to null
+    private Movie getMovieWithDetails(String responseBody) {
         Movie movie = null;
 
+        Timer.Sample sample = Timer.start(meterRegistry);
         try {
-            JsonNode rootNode = objectMapper.readTree(responseBody);
-            movie = objectMapper.convertValue(rootNode, Movie.class);
+            movie = OmdbResponseReader.readMovie(responseBody);
         } catch (IOException e) {
-            e.printStackTrace();
+            logger.warn("Could not read omdb details response", e);
+        } finally {
+            sample.stop(decodeTimer("detail"));
+        }
+
+        if (movie != null && movie.getError() != null) {
+            if (movie.getError().contains("Request limit reached!"))
+                throw new RequestLimitExceededException();
+            return null;
         }
 
         return movie;
     }
 
-    private String getRequestURL(String title, String releaseYear) {
-        String baseURI = "https://www.omdbapi.com/?apikey=" + environment.getProperty("omdb.api.key");
-        String searchParams = "&s=" + title + "&type=movie&y=" + releaseYear;
-        String externalRequestURL = baseURI + searchParams;
+    // parameters are encoded, so a title holding &, # or + is searched for as
+    // typed rather than cutting the query short or adding parameters to it
+    private String getRequestURL(String title, String releaseYear, int page) {
+        HttpUrl.Builder url = getApiURLBuilder()
+                .addQueryParameter("s", title)
+                .addQueryParameter("type", "movie");
+        if (releaseYear != null && !releaseYear.isBlank())
+            url.addQueryParameter("y", releaseYear.strip());
+        if (page > 1)
+            url.addQueryParameter("page", String.valueOf(page));
 
-        return externalRequestURL;
+        return url.build().toString();
     }
 
     private String getDetailsURL(String movieID) {
-        return "https://www.omdbapi.com/?apikey=" +
-                environment.getProperty("omdb.api.key") +
-                "&i=" + movieID;
+        return getApiURLBuilder()
+                .addQueryParameter("i", movieID)
+                .build()
+                .toString();
+    }
+
+    private HttpUrl.Builder getApiURLBuilder() {
+        return HttpUrl.get(getApiURL()).newBuilder()
+                .addQueryParameter("apikey", environment.getProperty("omdb.api.key"));
+    }
+
+    // overridable so benchmarks and load tests can point at a local stand-in
+    private String getApiURL() {
+        return environment.getProperty("omdb.api.url", "https://www.omdbapi.com/");
     }
 }
@@ -0,0 +1,148 @@
+package com.movie_buddy;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.Environment;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+
+// durable second level store for movie details, backed by the movies table.
+// reads go straight to the database; writes are queued and flushed in batches
+// on a schedule so a search never waits on an insert
+@Component
+public class MovieStore implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(MovieStore.class);
+
+    private static final int STORED_PAGE_SIZE = 500;
+
+    private final MovieRepository movieRepository;
+
+    private final Duration maxAge;
+
+    private final int batchSize;
+
+    // keyed by imdbID so a movie fetched twice before a flush is written once
+    private final Map<String, Movie> pendingWrites = new ConcurrentHashMap<>();
+
+    public MovieStore(MovieRepository movieRepository, Environment environment) {
+        this.movieRepository = movieRepository;
+        this.maxAge = environment.getProperty("movie.store.max-age", Duration.class, Duration.ofDays(7));
+        this.batchSize = environment.getProperty("movie.store.batch-size", Integer.class, 50);
+    }
+
+    // movies stored within movie.store.max-age, keyed by imdbID
+    public Map<String, Movie> findFresh(Collection<String> imdbIDs) {
+        if (imdbIDs.isEmpty())
+            return Map.of();
+
+        try {
+            return movieRepository.findByImdbIDInAndFetchedAtAfter(imdbIDs, Instant.now().minus(maxAge))
+                    .stream()
+                    .collect(Collectors.toMap(Movie::getImdbID, Function.identity()));
+        } catch (DataAccessException e) {
+            logger.warn("Could not read stored movies, falling back to omdb", e);
+            return Map.of();
+        }
+    }
+
+    // a stored movie regardless of its age, or null. used when omdb cannot be
+    // asked, where stale details are better than none
+    public Movie findStored(String imdbID) {
+        try {
+            return movieRepository.findById(imdbID).orElse(null);
+        } catch (DataAccessException e) {
+            logger.warn("Could not read stored movie {}", imdbID, e);
+            return null;
+        }
+    }
+
+    // every stored movie regardless of age, read a page at a time so the whole
+    // table is never held in memory at once
+    public void forEachStored(Consumer<Movie> action) {
+        try {
+            Pageable pageable = PageRequest.of(0, STORED_PAGE_SIZE, Sort.by("imdbID"));
+            Slice<Movie> page;
+            do {
+                page = movieRepository.findAll(pageable);
+                page.forEach(action);
+                pageable = page.nextPageable();
+            } while (page.hasNext());
+        } catch (DataAccessException e) {
+            logger.warn("Could not read stored movies", e);
+        }
+    }
+
+    // queue a freshly fetched movie to be written on the next flush
+    public void save(Movie movie) {
+        if (movie == null || movie.getImdbID() == null)
+            return;
+
+        if (movie.getFetchedAt() == null)
+            movie.setFetchedAt(Instant.now());
+
+        pendingWrites.put(movie.getImdbID(), movie);
+    }
+
+    public int pendingWriteCount() {
+        return pendingWrites.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("movie.store.pending.writes", this, MovieStore::pendingWriteCount)
+                .description("Movies queued to be written to the movies table")
+                .register(registry);
+    }
+
+    // saveAll merges on the imdbID primary key, so rows for known titles are
+    // updated in place and new titles are inserted
+    @Scheduled(fixedDelayString = "${movie.store.flush-interval:PT5S}")
+    @PreDestroy
+    public void flush() {
+        List<Movie> batch = new ArrayList<>(batchSize);
+
+        for (String imdbID : pendingWrites.keySet()) {
+            Movie movie = pendingWrites.remove(imdbID);
+            if (movie != null)
+                batch.add(movie);
+
+            if (batch.size() == batchSize) {
+                write(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+
+        if (!batch.isEmpty())
+            write(batch);
+    }
+
+    private void write(List<Movie> batch) {
+        try {
+            movieRepository.saveAll(batch);
+        } catch (DataAccessException e) {
+            logger.warn("Could not store {} movies, they will be fetched from omdb again", batch.size(), e);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.movie_buddy;
+
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// json api for other services, so their searches and lookups share this
+// application's caches and omdb budget instead of calling omdb themselves.
+// movies are returned in omdb's own json shape. serves both the servlet and
+// the reactive stack, since spring mvc also handles reactive return values
+@RestController
+@RequestMapping("/api/movies")
+public class MoviesApiController {
+
+    public record ApiSearchResults(String title, String releaseYear, MovieSearchIndex.Field searchIn, int page,
+            int totalPages, int totalResults, List<Movie> movies, List<String> missingMovieIDs) {
+    }
+
+    @Autowired
+    private ReactiveMovieLookups movieLookups;
+
+    @Autowired
+    private Environment environment;
+
+    // one page of results with details, like the html results page
+    @GetMapping("/search")
+    public Mono<ApiSearchResults> search(
+            @RequestParam(required = true) String title,
+            @RequestParam(required = false) String releaseYear,
+            @RequestParam(defaultValue = "title") MovieSearchIndex.Field searchIn,
+            @RequestParam(defaultValue = "1") int page) {
+
+        Duration searchBudget = environment.getProperty("movie.search.budget", Duration.class,
+                Duration.ofSeconds(5));
+        int pageSize = environment.getProperty("movie.search.page-size", Integer.class, 10);
+
+        return movieLookups.getMovieIDs(title, releaseYear, searchIn)
+                .flatMap(movieIDs -> {
+                    SearchPage searchPage = SearchPage.of(movieIDs, page, pageSize);
+                    return movieLookups.getMovieResults(searchPage.movieIDs(), searchBudget)
+                            .map(movieResults -> new ApiSearchResults(title, releaseYear, searchIn,
+                                    searchPage.page(), searchPage.totalPages(), movieIDs.size(),
+                                    movieResults.movies(), movieResults.missingMovieIDs()));
+                })
+                .defaultIfEmpty(new ApiSearchResults(title, releaseYear, searchIn, 1, 0, 0, List.of(), List.of()));
+    }
+
+    // many movies in one round trip. each imdbID is looked up once, through the
+    // details cache, the movies table and omdb in that order; imdbIDs not
+    // resolved within movie.api.batch-budget are listed as missing
+    @PostMapping(path = "/details", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<MovieResults> getDetails(@RequestBody List<String> movieIDs) {
+        return movieLookups.getMovieResults(distinct(movieIDs), getBatchBudget());
+    }
+
+    // the same lookup streamed as newline delimited json, one line per imdbID as
+    // soon as it resolves, so large batches need not be held in memory or wait
+    // for their slowest movie. a line's movie is null when omdb has no details or
+    // the lookup failed; imdbIDs without a line had not resolved within the budget
+    @PostMapping(path = "/details", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<ReactiveMovieLookups.MovieLookup> streamDetails(@RequestBody List<String> movieIDs) {
+        return movieLookups.getMovieLookups(distinct(movieIDs))
+                .take(getBatchBudget());
+    }
+
+    private List<String> distinct(List<String> movieIDs) {
+        int maxBatchSize = environment.getProperty("movie.api.max-batch-size", Integer.class, 1000);
+        if (movieIDs.size() > maxBatchSize)
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "At most " + maxBatchSize + " imdbIDs can be looked up at once");
+
+        List<String> distinctIDs = List.copyOf(new LinkedHashSet<>(movieIDs.stream()
+                .filter(movieID -> movieID != null && !movieID.isBlank())
+                .map(String::strip)
+                .toList()));
+        if (distinctIDs.isEmpty())
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No imdbIDs given");
+
+        return distinctIDs;
+    }
+
+    private Duration getBatchBudget() {
+        return environment.getProperty("movie.api.batch-budget", Duration.class, Duration.ofSeconds(30));
+    }
+}
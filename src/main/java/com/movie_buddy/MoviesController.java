@@ -1,42 +1,219 @@
 package com.movie_buddy;
 
 import java.io.IOException;
-import java.util.ArrayList;
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import jakarta.servlet.http.HttpServletResponse;
+
+// ReactiveMoviesController serves the same paths under the reactive profile
 @Controller
+@Profile("!reactive")
 public class MoviesController {
 
     @Autowired
     private MovieService movieService;
 
+    @Autowired
+    private MovieCardRenderer movieCardRenderer;
+
+    @Autowired
+    private SearchPageCaching searchPageCaching;
+
+    @Autowired
+    private Environment environment;
+
+    @Autowired
+    @Qualifier("applicationTaskExecutor")
+    private AsyncTaskExecutor taskExecutor;
+
     @GetMapping("/")
     public String home(Model model) {
         model.addAttribute("initialSearch", true);
         return "layout";
     }
 
+    // with movie.search.streaming enabled the page is returned right away and
+    // its results are filled in from /movies/stream as each movie arrives.
+    // otherwise a repeated search whose movies have not changed is answered
+    // with a 304 before rendering, and results are built from cached cards
     @GetMapping("/movies")
     public String getSearchedForMovies(
             @RequestParam(required = true) String title,
             @RequestParam(required = false) String releaseYear,
-            Model model) throws IOException, InterruptedException, ExecutionException {
+            @RequestParam(defaultValue = "title") MovieSearchIndex.Field searchIn,
+            @RequestParam(defaultValue = "1") int page,
+            Model model, WebRequest webRequest, HttpServletResponse response)
+            throws IOException, InterruptedException, ExecutionException {
 
-        List<String> movieIDs = movieService.getMoviesWithIds(title, releaseYear);
-        List<Movie> movieDetails = new ArrayList<>();
+        if (environment.getProperty("movie.search.streaming", Boolean.class, false)) {
+            model.addAttribute("streamURL", SearchPage.url("/movies/stream", title, releaseYear, searchIn, page));
+            return "layout";
+        }
 
-        if (movieIDs != null)
-            movieDetails = movieService.getMoviesWithDetails(movieIDs);
+        List<String> movieIDs = movieService.getMoviesWithIds(title, releaseYear, searchIn);
+        SearchPage searchPage = null;
+        MovieResults movieResults = new MovieResults(List.of(), List.of());
 
+        if (movieIDs != null) {
+            searchPage = SearchPage.of(movieIDs, page, getPageSize());
+            addPageLinks(model, title, releaseYear, searchIn, searchPage);
+
+            movieResults = movieService.getMovieResults(searchPage.movieIDs());
+        }
+
+        response.setHeader(HttpHeaders.CACHE_CONTROL,
+                searchPageCaching.cacheControl(movieResults).getHeaderValue());
+        if (webRequest.checkNotModified(searchPageCaching.etag(title, releaseYear, searchIn, searchPage,
+                movieResults)))
+            return null;
+
+        List<Movie> movieDetails = movieResults.movies();
         model.addAttribute("moviesFound", !movieDetails.isEmpty());
         model.addAttribute("movieDetails", movieDetails);
+        model.addAttribute("movieCards", movieCardRenderer.renderAll(movieDetails));
+        // movies that did not load within the search budget
+        model.addAttribute("partialResults", movieResults.isPartial());
+        model.addAttribute("missingMovieIDs", movieResults.missingMovieIDs());
         return "layout";
     }
+
+    private int getPageSize() {
+        return environment.getProperty("movie.search.page-size", Integer.class, 10);
+    }
+
+    private void addPageLinks(Model model, String title, String releaseYear, MovieSearchIndex.Field searchIn,
+            SearchPage searchPage) {
+        model.addAttribute("searchPage", searchPage);
+        if (searchPage.hasPrevious())
+            model.addAttribute("previousPageURL", SearchPage.url("/movies", title, releaseYear, searchIn,
+                    searchPage.page() - 1));
+        if (searchPage.hasNext())
+            model.addAttribute("nextPageURL", SearchPage.url("/movies", title, releaseYear, searchIn,
+                    searchPage.page() + 1));
+    }
+
+    // server-sent events: a "pages" event with the SearchPage.Links of a search
+    // spanning several pages, one "movie" event holding a rendered movie card per
+    // result on the page, in the order the details arrive, then a "done" event
+    // with the number of movies sent. like a rendered page, the stream waits for
+    // details for at most movie.search.budget; movies still pending then are
+    // cancelled and left out. failures are reported with an "error" event
+    @GetMapping("/movies/stream")
+    public SseEmitter streamSearchedForMovies(
+            @RequestParam(required = true) String title,
+            @RequestParam(required = false) String releaseYear,
+            @RequestParam(defaultValue = "title") MovieSearchIndex.Field searchIn,
+            @RequestParam(defaultValue = "1") int page) {
+
+        Duration timeout = environment.getProperty("movie.search.stream-timeout", Duration.class,
+                Duration.ofSeconds(30));
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+
+        taskExecutor.execute(() -> streamMovies(emitter, title, releaseYear, searchIn, page));
+
+        return emitter;
+    }
+
+    private void streamMovies(SseEmitter emitter, String title, String releaseYear,
+            MovieSearchIndex.Field searchIn, int page) {
+        List<CompletableFuture<Movie>> movieFutures;
+
+        try {
+            List<String> movieIDs = movieService.getMoviesWithIds(title, releaseYear, searchIn);
+            if (movieIDs == null) {
+                movieFutures = List.of();
+            } else {
+                SearchPage searchPage = SearchPage.of(movieIDs, page, getPageSize());
+                if (searchPage.totalPages() > 1)
+                    emitter.send(SseEmitter.event().name("pages")
+                            .data(searchPage.links("/movies", title, releaseYear, searchIn),
+                                    MediaType.APPLICATION_JSON));
+                movieFutures = movieService.getMovieFutures(searchPage.movieIDs());
+            }
+        } catch (IOException | RuntimeException e) {
+            sendError(emitter, e);
+            return;
+        }
+
+        // a closed or timed out stream cancels the lookups still in flight
+        Runnable cancelPending = () -> movieFutures.forEach(movieFuture -> movieFuture.cancel(true));
+        emitter.onTimeout(cancelPending);
+        emitter.onError(e -> cancelPending.run());
+
+        // cards are written on the task executor rather than on omdb callback
+        // threads, and none once "done" has been sent
+        ReentrantLock sendLock = new ReentrantLock();
+        AtomicBoolean finished = new AtomicBoolean();
+        AtomicInteger moviesSent = new AtomicInteger();
+        List<CompletableFuture<Void>> sent = movieFutures.stream()
+                .map(movieFuture -> movieFuture.thenAcceptAsync(movie -> {
+                    if (movie == null)
+                        return;
+
+                    String card = movieCardRenderer.render(movie);
+                    sendLock.lock();
+                    try {
+                        if (finished.get())
+                            return;
+                        emitter.send(SseEmitter.event().name("movie").data(card));
+                        moviesSent.incrementAndGet();
+                    } catch (IOException | IllegalStateException e) {
+                        cancelPending.run();
+                    } finally {
+                        sendLock.unlock();
+                    }
+                }, taskExecutor))
+                .toList();
+
+        CompletableFuture.allOf(sent.toArray(CompletableFuture[]::new))
+                .completeOnTimeout(null, getSearchBudget().toNanos(), TimeUnit.NANOSECONDS)
+                .handle((ignored, e) -> {
+                    cancelPending.run();
+                    sendLock.lock();
+                    try {
+                        finished.set(true);
+                        emitter.send(SseEmitter.event().name("done").data(moviesSent.get()));
+                        emitter.complete();
+                    } catch (IOException | IllegalStateException sendFailure) {
+                        emitter.completeWithError(sendFailure);
+                    } finally {
+                        sendLock.unlock();
+                    }
+                    return null;
+                });
+    }
+
+    private Duration getSearchBudget() {
+        return environment.getProperty("movie.search.budget", Duration.class, Duration.ofSeconds(5));
+    }
+
+    private void sendError(SseEmitter emitter, Exception e) {
+        try {
+            emitter.send(SseEmitter.event().name("error").data(e.getMessage()));
+            emitter.complete();
+        } catch (IOException sendFailure) {
+            emitter.completeWithError(sendFailure);
+        }
+    }
 }
@@ -0,0 +1,188 @@
+package com.movie_buddy;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+// client side limit on calls to omdb, so the api key's quota is spread over the
+// day instead of being refused by omdb mid-afternoon.
+// a token bucket caps calls per second and a counter caps calls per UTC day.
+// searches take priority over detail calls: details wait while a search is
+// queued, and the last omdb.rate-limit.search-reserve calls of each day are
+// kept for searches only.
+// both are counted in memory, per process: the day's count starts over on every
+// restart, and each instance spends the whole daily limit on its own, so with
+// several instances omdb.rate-limit.daily-limit must be the key's quota divided
+// between them
+@Component
+public class OmdbRateLimiter implements MeterBinder {
+
+    public enum Priority {
+        SEARCH, DETAIL
+    }
+
+    private final double permitsPerSecond;
+
+    // at least one whole permit, or a rate below one per second would never
+    // let a call through
+    private final double capacity;
+
+    private final long dailyLimit;
+
+    private final long searchReserve;
+
+    private final Duration maxWait;
+
+    // a lock rather than synchronized so waiting virtual threads are not pinned
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition permitsChanged = lock.newCondition();
+
+    private double permits;
+
+    private long lastRefill = System.nanoTime();
+
+    private LocalDate today = LocalDate.now(ZoneOffset.UTC);
+
+    private long usedToday;
+
+    private int waitingSearches;
+
+    public OmdbRateLimiter(Environment environment) {
+        this.permitsPerSecond = environment.getProperty("omdb.rate-limit.requests-per-second", Double.class, 10.0);
+        this.dailyLimit = environment.getProperty("omdb.rate-limit.daily-limit", Long.class, 1000L);
+        this.searchReserve = environment.getProperty("omdb.rate-limit.search-reserve", Long.class, 100L);
+        this.maxWait = environment.getProperty("omdb.rate-limit.max-wait", Duration.class, Duration.ofSeconds(2));
+        this.capacity = Math.max(1, permitsPerSecond);
+        this.permits = capacity;
+    }
+
+    // takes a permit only if one is available right now
+    public boolean tryAcquire(Priority priority) {
+        lock.lock();
+        try {
+            return take(priority);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // waits up to omdb.rate-limit.max-wait for a permit. returns false right away
+    // once the day's budget is spent, since waiting would not help
+    public boolean acquire(Priority priority) {
+        long deadline = System.nanoTime() + maxWait.toNanos();
+
+        lock.lock();
+        try {
+            if (priority == Priority.SEARCH)
+                waitingSearches++;
+
+            try {
+                while (!take(priority)) {
+                    long remaining = deadline - System.nanoTime();
+                    if (isDailyBudgetSpent(priority) || remaining <= 0)
+                        return false;
+
+                    permitsChanged.awaitNanos(Math.min(remaining, nanosUntilNextPermit()));
+                }
+                return true;
+            } finally {
+                if (priority == Priority.SEARCH) {
+                    waitingSearches--;
+                    permitsChanged.signalAll();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // hands back a permit taken for a call that was then not made, along with
+    // its place in today's budget
+    public void release() {
+        lock.lock();
+        try {
+            refill();
+            permits = Math.min(capacity, permits + 1);
+            usedToday = Math.max(0, usedToday - 1);
+            permitsChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // calls left in today's budget
+    public long getRemainingToday() {
+        lock.lock();
+        try {
+            rollOverDay();
+            return Math.max(0, dailyLimit - usedToday);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("omdb.rate.limit.remaining", this, OmdbRateLimiter::getRemainingToday)
+                .description("omdb calls left in today's budget")
+                .register(registry);
+    }
+
+    private boolean take(Priority priority) {
+        refill();
+
+        if (isDailyBudgetSpent(priority))
+            return false;
+
+        // a detail call leaves a permit for every search waiting behind it
+        int permitsNeeded = priority == Priority.SEARCH
+                ? 1
+                : 1 + waitingSearches;
+        if (permits < permitsNeeded)
+            return false;
+
+        permits -= 1;
+        usedToday++;
+        return true;
+    }
+
+    private boolean isDailyBudgetSpent(Priority priority) {
+        rollOverDay();
+        long limit = priority == Priority.SEARCH ? dailyLimit : dailyLimit - searchReserve;
+        return usedToday >= limit;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        double refilled = (now - lastRefill) / (double) TimeUnit.SECONDS.toNanos(1) * permitsPerSecond;
+        permits = Math.min(capacity, permits + refilled);
+        lastRefill = now;
+    }
+
+    private long nanosUntilNextPermit() {
+        double missing = Math.max(0, 1 - permits);
+        return Math.max(1, (long) (missing / permitsPerSecond * TimeUnit.SECONDS.toNanos(1)));
+    }
+
+    private void rollOverDay() {
+        LocalDate now = LocalDate.now(ZoneOffset.UTC);
+        if (!now.equals(today)) {
+            today = now;
+            usedToday = 0;
+        }
+    }
+}
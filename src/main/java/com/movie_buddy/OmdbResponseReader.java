@@ -0,0 +1,41 @@
+package com.movie_buddy;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.github.benmanes.caffeine.cache.Interner;
+
+// shared, preconfigured readers for omdb response bodies.
+// object readers are immutable and thread safe, so one instance per target type
+// is built once and reused; each body is decoded in a single streaming pass
+// without building an intermediate JsonNode tree.
+// values repeated across movies are interned as they are read
+public final class OmdbResponseReader {
+
+    private static final JsonMapper mapper = JsonMapper.builder()
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .build();
+
+    private static final ObjectReader searchReader = mapper.readerFor(SearchResponse.class);
+
+    private static final ObjectReader movieReader = mapper.readerFor(Movie.class);
+
+    // weak, so values no cached movie uses any more can be collected
+    private static final Interner<String> interner = Interner.newWeakInterner();
+
+    private OmdbResponseReader() {
+    }
+
+    public static SearchResponse readSearchResponse(String responseBody) throws IOException {
+        return searchReader.readValue(responseBody);
+    }
+
+    public static Movie readMovie(String responseBody) throws IOException {
+        Movie movie = movieReader.readValue(responseBody);
+        if (movie != null)
+            movie.internRepeatedValues(interner::intern);
+        return movie;
+    }
+}
@@ -0,0 +1,57 @@
+package com.movie_buddy;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+// how often each title has been searched for recently, so background jobs can
+// keep the most searched titles warm. bounded like the other caches; titles
+// nobody searches for a day are forgotten
+@Component
+public class PopularSearches {
+
+    public record Search(String title, String releaseYear) {
+    }
+
+    private record Counted(Search search, LongAdder count) {
+    }
+
+    private final Cache<String, Counted> counts;
+
+    public PopularSearches(Environment environment) {
+        this.counts = Caffeine.newBuilder()
+                .maximumSize(environment.getProperty("movie.search.popular.maximum-size", Long.class, 1000L))
+                .expireAfterAccess(Duration.ofDays(1))
+                .build();
+    }
+
+    public void record(String title, String releaseYear) {
+        if (title == null || title.isBlank())
+            return;
+
+        counts.get(SearchResultsCache.key(title, releaseYear),
+                key -> new Counted(new Search(title.strip(), releaseYear), new LongAdder()))
+                .count()
+                .increment();
+    }
+
+    // the most searched titles first. the counts are read once before sorting,
+    // since searches recorded meanwhile would change them under the comparator
+    public List<Search> top(int limit) {
+        return counts.asMap().values().stream()
+                .map(counted -> Map.entry(counted.search(), counted.count().sum()))
+                .toList()
+                .stream()
+                .sorted(Map.Entry.<Search, Long>comparingByValue().reversed())
+                .limit(limit)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+}
@@ -0,0 +1,59 @@
+package com.movie_buddy;
+
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.context.request.WebRequest;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+// poster thumbnails from PosterStore's disk cache.
+// tomcat is handed the file to send with sendfile, so the bytes go from the
+// page cache to the socket without passing through the heap; other containers
+// get a plain copy. ReactivePosterController serves the same path under the
+// reactive profile
+@Controller
+@Profile("!reactive")
+public class PosterController {
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    @Autowired
+    private PosterStore posterStore;
+
+    @GetMapping("/posters/{imdbID}")
+    public void getPoster(@PathVariable String imdbID, WebRequest webRequest, HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+
+        PosterStore.Poster poster = posterStore.getPoster(imdbID);
+
+        response.setHeader(HttpHeaders.CACHE_CONTROL, posterStore.getCacheControl(poster).getHeaderValue());
+        if (webRequest.checkNotModified(Files.getLastModifiedTime(poster.path()).toMillis()))
+            return;
+
+        long size = Files.size(poster.path());
+        response.setContentType(posterStore.getMediaType(poster).toString());
+        response.setContentLengthLong(size);
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, poster.path().toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, 0L);
+            request.setAttribute(SENDFILE_END, size);
+        } else {
+            Files.copy(poster.path(), response.getOutputStream());
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package com.movie_buddy;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.regex.Pattern;
+
+import javax.imageio.ImageIO;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.Environment;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+
+// poster thumbnails kept on local disk, so results pages load small images from
+// this server instead of full size ones from the poster host.
+// a poster is downloaded once, scaled down to movie.posters.width and stored as
+// <imdbID>.jpg under movie.posters.directory. movies without a poster, and
+// posters that cannot be fetched, get a placeholder drawn here rather than one
+// from a remote image service. concurrent requests for a poster not yet on disk
+// share one download.
+// only movies already known to MovieService get their poster downloaded, so the
+// endpoint cannot be used to spend omdb calls on arbitrary imdbIDs, and a poster
+// that could not be fetched gets the placeholder for movie.posters.placeholder-max-age
+// before it is tried again
+@Component
+public class PosterStore implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(PosterStore.class);
+
+    // also keeps request paths from reaching outside the directory
+    private static final Pattern IMDB_ID = Pattern.compile("tt\\d{1,10}");
+
+    private static final String PLACEHOLDER_FILE = "placeholder.png";
+
+    // a poster on disk, or the placeholder when there is none
+    public record Poster(Path path, boolean placeholder) {
+    }
+
+    private final MovieService movieService;
+
+    private final OkHttpClient client;
+
+    private final Path directory;
+
+    private final int width;
+
+    private final long maxBytes;
+
+    private final Duration fetchTimeout;
+
+    private final InFlightRequests<String, Poster> inFlightPosters;
+
+    private final CacheControl posterCacheControl;
+
+    private final CacheControl placeholderCacheControl;
+
+    // imdbIDs whose poster could not be fetched lately
+    private final Cache<String, Boolean> failedPosters;
+
+    private Counter downloads;
+
+    private volatile Poster placeholder;
+
+    public PosterStore(MovieService movieService, Environment environment) {
+        this.movieService = movieService;
+        this.directory = Path.of(environment.getProperty("movie.posters.directory",
+                Path.of(System.getProperty("java.io.tmpdir"), "movie-buddy", "posters").toString()));
+        this.width = environment.getProperty("movie.posters.width", Integer.class, 300);
+        this.maxBytes = environment.getProperty("movie.posters.max-bytes", Long.class, 5_000_000L);
+        this.fetchTimeout = environment.getProperty("movie.posters.fetch-timeout", Duration.class,
+                Duration.ofSeconds(10));
+
+        // posters rarely change; a placeholder may be replaced once the poster host
+        // answers again
+        this.posterCacheControl = CacheControl.maxAge(environment.getProperty("movie.posters.max-age",
+                Duration.class, Duration.ofDays(30))).cachePublic();
+        Duration placeholderMaxAge = environment.getProperty("movie.posters.placeholder-max-age", Duration.class,
+                Duration.ofHours(1));
+        this.placeholderCacheControl = CacheControl.maxAge(placeholderMaxAge).cachePublic();
+        this.failedPosters = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(placeholderMaxAge)
+                .build();
+
+        this.client = new OkHttpClient.Builder()
+                .callTimeout(fetchTimeout)
+                .build();
+        this.inFlightPosters = new InFlightRequests<>(() -> {
+        });
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        this.downloads = Counter.builder("movie.posters.downloads")
+                .description("Posters downloaded and resized into the disk cache")
+                .register(registry);
+    }
+
+    public CacheControl getCacheControl(Poster poster) {
+        return poster.placeholder() ? placeholderCacheControl : posterCacheControl;
+    }
+
+    public MediaType getMediaType(Poster poster) {
+        return poster.placeholder() ? MediaType.IMAGE_PNG : MediaType.IMAGE_JPEG;
+    }
+
+    // the thumbnail for a movie, downloading it first if it is not on disk.
+    // blocks on the poster host, so reactive callers run it off the event loop
+    public Poster getPoster(String imdbID) throws IOException {
+        if (!IMDB_ID.matcher(imdbID).matches())
+            return getPlaceholder();
+
+        Path thumbnail = directory.resolve(imdbID + ".jpg");
+        if (Files.exists(thumbnail))
+            return new Poster(thumbnail, false);
+        if (failedPosters.getIfPresent(imdbID) != null)
+            return getPlaceholder();
+
+        CompletableFuture<Poster> download = inFlightPosters.join(imdbID, () -> {
+            try {
+                return CompletableFuture.completedFuture(download(imdbID, thumbnail));
+            } catch (IOException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        });
+
+        try {
+            return download.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            download.cancel(true);
+            throw new InterruptedIOException("Interrupted while waiting for the poster of " + imdbID);
+        } catch (ExecutionException e) {
+            logger.debug("Could not store the poster of {}", imdbID, e.getCause());
+            failedPosters.put(imdbID, Boolean.TRUE);
+            return getPlaceholder();
+        }
+    }
+
+    private Poster download(String imdbID, Path thumbnail) throws IOException {
+        String posterURL = getPosterURL(imdbID);
+        if (posterURL == null || !posterURL.startsWith("http"))
+            return getPlaceholder();
+
+        BufferedImage image;
+        Request request = new Request.Builder().url(posterURL).build();
+        try (Response response = client.newCall(request).execute()) {
+            ResponseBody body = response.body();
+            if (!response.isSuccessful() || body == null)
+                throw new IOException("Poster of " + imdbID + " answered " + response.code());
+
+            BufferedSource source = body.source();
+            if (source.request(maxBytes + 1))
+                throw new IOException("Poster of " + imdbID + " is larger than " + maxBytes + " bytes");
+
+            image = ImageIO.read(source.inputStream());
+        }
+        if (image == null)
+            throw new IOException("Poster of " + imdbID + " is not a readable image");
+
+        // written aside and moved into place, so a reader never sees half a file
+        Files.createDirectories(directory);
+        Path partial = Files.createTempFile(directory, imdbID, ".part");
+        try {
+            ImageIO.write(resize(image), "jpg", partial.toFile());
+            Files.move(partial, thumbnail, StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(partial);
+        }
+
+        if (downloads != null)
+            downloads.increment();
+        return new Poster(thumbnail, false);
+    }
+
+    // the poster url omdb gave for the movie, or null when it has none or the
+    // movie is not known here; never looked up on omdb
+    private String getPosterURL(String imdbID) {
+        Movie movie = movieService.getKnownMovies(List.of(imdbID)).get(imdbID);
+        return movie == null ? null : movie.getPoster();
+    }
+
+    // scaled to the thumbnail width, keeping the aspect ratio. jpeg has no alpha,
+    // so the result is always plain rgb
+    private BufferedImage resize(BufferedImage image) {
+        int targetWidth = Math.min(width, image.getWidth());
+        int targetHeight = Math.max(1, Math.round(image.getHeight() * (targetWidth / (float) image.getWidth())));
+
+        BufferedImage resized = new BufferedImage(targetWidth, targetHeight, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = resized.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(image, 0, 0, targetWidth, targetHeight, null);
+        } finally {
+            graphics.dispose();
+        }
+        return resized;
+    }
+
+    // drawn once per directory, in the poster proportions the layout expects
+    Poster getPlaceholder() throws IOException {
+        Poster current = placeholder;
+        if (current != null)
+            return current;
+
+        synchronized (this) {
+            Path path = directory.resolve(PLACEHOLDER_FILE);
+            if (!Files.exists(path)) {
+                Files.createDirectories(directory);
+                Path partial = Files.createTempFile(directory, "placeholder", ".part");
+                try {
+                    ImageIO.write(drawPlaceholder(), "png", partial.toFile());
+                    Files.move(partial, path, StandardCopyOption.ATOMIC_MOVE,
+                            StandardCopyOption.REPLACE_EXISTING);
+                } finally {
+                    Files.deleteIfExists(partial);
+                }
+            }
+
+            placeholder = new Poster(path, true);
+            return placeholder;
+        }
+    }
+
+    // a picture frame on grey, drawn from shapes so no fonts need to be installed
+    private BufferedImage drawPlaceholder() {
+        int height = Math.round(width * 425 / 300f);
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            graphics.setColor(new Color(0x55, 0x55, 0x55));
+            graphics.fillRect(0, 0, width, height);
+
+            int frameWidth = width / 2;
+            int frameHeight = frameWidth * 3 / 4;
+            int left = (width - frameWidth) / 2;
+            int top = (height - frameHeight) / 2;
+
+            graphics.setColor(new Color(0x99, 0x99, 0x99));
+            graphics.setStroke(new BasicStroke(Math.max(2, width / 100f)));
+            graphics.drawRect(left, top, frameWidth, frameHeight);
+            graphics.fillOval(left + frameWidth * 2 / 3, top + frameHeight / 6, frameWidth / 6, frameWidth / 6);
+            graphics.fillPolygon(
+                    new int[] { left, left + frameWidth / 3, left + frameWidth / 2, left + frameWidth * 2 / 3,
+                            left + frameWidth },
+                    new int[] { top + frameHeight, top + frameHeight / 3, top + frameHeight / 2,
+                            top + frameHeight * 2 / 5, top + frameHeight },
+                    5);
+        } finally {
+            graphics.dispose();
+        }
+        return image;
+    }
+}
@@ -0,0 +1,93 @@
+package com.movie_buddy;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+// searches and detail lookups composed from MovieService's async calls, shared
+// by the reactive controller and the json api.
+// no thread waits on omdb: at most movie.search.detail-concurrency detail calls
+// are in flight per lookup. only the movies table read blocks, and it runs on
+// the bounded elastic scheduler
+@Component
+public class ReactiveMovieLookups {
+
+    private final MovieService movieService;
+
+    private final int detailConcurrency;
+
+    public ReactiveMovieLookups(MovieService movieService, Environment environment) {
+        this.movieService = movieService;
+        this.detailConcurrency = environment.getProperty("movie.search.detail-concurrency", Integer.class, 10);
+    }
+
+    // empty when nothing was found. searches by other fields than the title only
+    // read the in-memory index, so they are not moved off the calling thread
+    public Mono<List<String>> getMovieIDs(String title, String releaseYear, MovieSearchIndex.Field searchIn) {
+        if (searchIn != MovieSearchIndex.Field.TITLE)
+            return Mono.fromCallable(() -> movieService.getMoviesWithIds(title, releaseYear, searchIn));
+
+        return Mono.fromFuture(() -> movieService.getMoviesWithIdsAsync(title, releaseYear));
+    }
+
+    // waits for details until the budget runs out; movies still pending are
+    // cancelled and, like failed lookups, reported as missing
+    public Mono<MovieResults> getMovieResults(List<String> movieIDs, Duration budget) {
+        return getMovieLookups(movieIDs)
+                .take(budget)
+                .collectMap(MovieLookup::imdbID)
+                .map(lookups -> {
+                    List<Movie> movies = movieIDs.stream()
+                            .map(lookups::get)
+                            .filter(lookup -> lookup != null && lookup.movie() != null)
+                            .map(MovieLookup::movie)
+                            .toList();
+                    List<String> missingMovieIDs = movieIDs.stream()
+                            .filter(movieID -> !lookups.containsKey(movieID) || lookups.get(movieID).failed())
+                            .toList();
+
+                    return new MovieResults(movies, missingMovieIDs);
+                });
+    }
+
+    // movies in the order their details arrive, leaving out failed lookups and
+    // imdbIDs omdb has no details for
+    public Flux<Movie> getMovies(List<String> movieIDs) {
+        return getMovieLookups(movieIDs)
+                .filter(lookup -> lookup.movie() != null)
+                .map(MovieLookup::movie);
+    }
+
+    // one lookup per imdbID in the order they complete. known movies are served
+    // from the cache or movies table, the rest are requested from omdb.
+    // cancelling the flux cancels the calls in flight
+    public Flux<MovieLookup> getMovieLookups(List<String> movieIDs) {
+        return Mono.fromCallable(() -> movieService.getKnownMovies(movieIDs))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMapMany(knownMovies -> Flux.fromIterable(movieIDs)
+                        .flatMap(movieID -> lookUp(movieID, knownMovies), detailConcurrency));
+    }
+
+    private Mono<MovieLookup> lookUp(String movieID, Map<String, Movie> knownMovies) {
+        Movie knownMovie = knownMovies.get(movieID);
+        if (knownMovie != null)
+            return Mono.just(new MovieLookup(movieID, knownMovie, false));
+
+        return Mono.fromFuture(() -> movieService.fetchMovieWithDetails(movieID))
+                .map(movie -> new MovieLookup(movieID, movie, false))
+                .defaultIfEmpty(new MovieLookup(movieID, null, false))
+                .onErrorResume(e -> Mono.just(new MovieLookup(movieID, null, true)));
+    }
+
+    // the outcome of looking up one imdbID; movie is null when omdb has no details
+    // or the lookup failed
+    public record MovieLookup(String imdbID, Movie movie, boolean failed) {
+    }
+}
@@ -0,0 +1,139 @@
+package com.movie_buddy;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.server.ServerWebExchange;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// MoviesController for the reactive profile, on webflux.
+// no thread waits on omdb: searches and detail calls go through
+// ReactiveMovieLookups
+@Controller
+@Profile("reactive")
+public class ReactiveMoviesController {
+
+    @Autowired
+    private ReactiveMovieLookups movieLookups;
+
+    @Autowired
+    private MovieCardRenderer movieCardRenderer;
+
+    @Autowired
+    private SearchPageCaching searchPageCaching;
+
+    @Autowired
+    private Environment environment;
+
+    @GetMapping("/")
+    public String home(Model model) {
+        model.addAttribute("initialSearch", true);
+        return "layout";
+    }
+
+    @GetMapping("/movies")
+    public Mono<String> getSearchedForMovies(
+            @RequestParam(required = true) String title,
+            @RequestParam(required = false) String releaseYear,
+            @RequestParam(defaultValue = "title") MovieSearchIndex.Field searchIn,
+            @RequestParam(defaultValue = "1") int page,
+            Model model, ServerWebExchange exchange) {
+
+        if (environment.getProperty("movie.search.streaming", Boolean.class, false)) {
+            model.addAttribute("streamURL", SearchPage.url("/movies/stream", title, releaseYear, searchIn, page));
+            return Mono.just("layout");
+        }
+
+        return movieLookups.getMovieIDs(title, releaseYear, searchIn)
+                .map(movieIDs -> {
+                    SearchPage searchPage = SearchPage.of(movieIDs, page, getPageSize());
+                    addPageLinks(model, title, releaseYear, searchIn, searchPage);
+                    return searchPage.movieIDs();
+                })
+                .flatMap(movieIDs -> movieLookups.getMovieResults(movieIDs, getSearchBudget()))
+                .defaultIfEmpty(new MovieResults(List.of(), List.of()))
+                .map(movieResults -> {
+                    // a 304 leaves the view unrendered
+                    exchange.getResponse().getHeaders().setCacheControl(
+                            searchPageCaching.cacheControl(movieResults));
+                    if (exchange.checkNotModified(searchPageCaching.etag(title, releaseYear, searchIn,
+                            (SearchPage) model.getAttribute("searchPage"), movieResults)))
+                        return "layout";
+
+                    model.addAttribute("moviesFound", !movieResults.movies().isEmpty());
+                    model.addAttribute("movieDetails", movieResults.movies());
+                    model.addAttribute("movieCards", movieCardRenderer.renderAll(movieResults.movies()));
+                    // movies that did not load within the search budget
+                    model.addAttribute("partialResults", movieResults.isPartial());
+                    model.addAttribute("missingMovieIDs", movieResults.missingMovieIDs());
+                    return "layout";
+                });
+    }
+
+    // the same events as MoviesController's stream: the page links of a search
+    // spanning several pages, a rendered card per movie on the page as it
+    // arrives, then "done" with the number sent, or "error". lookups still
+    // pending once movie.search.budget runs out are cancelled
+    @GetMapping(path = "/movies/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @ResponseBody
+    public Flux<ServerSentEvent<Object>> streamSearchedForMovies(
+            @RequestParam(required = true) String title,
+            @RequestParam(required = false) String releaseYear,
+            @RequestParam(defaultValue = "title") MovieSearchIndex.Field searchIn,
+            @RequestParam(defaultValue = "1") int page) {
+
+        AtomicInteger moviesSent = new AtomicInteger();
+
+        return movieLookups.getMovieIDs(title, releaseYear, searchIn)
+                .map(movieIDs -> SearchPage.of(movieIDs, page, getPageSize()))
+                .flatMapMany(searchPage -> {
+                    Flux<ServerSentEvent<Object>> movies = movieLookups.getMovies(searchPage.movieIDs())
+                            .map(movie -> event("movie", movieCardRenderer.render(movie)))
+                            .doOnNext(event -> moviesSent.incrementAndGet());
+                    return searchPage.totalPages() > 1
+                            ? Flux.concat(Mono.just(event("pages",
+                                    searchPage.links("/movies", title, releaseYear, searchIn))), movies)
+                            : movies;
+                })
+                .take(getSearchBudget())
+                .concatWith(Mono.fromSupplier(() -> event("done", String.valueOf(moviesSent.get()))))
+                .onErrorResume(e -> Mono.just(event("error", String.valueOf(e.getMessage()))));
+    }
+
+    // string data is sent as is, anything else as json
+    private static ServerSentEvent<Object> event(String name, Object data) {
+        return ServerSentEvent.builder(data).event(name).build();
+    }
+
+    private Duration getSearchBudget() {
+        return environment.getProperty("movie.search.budget", Duration.class, Duration.ofSeconds(5));
+    }
+
+    private int getPageSize() {
+        return environment.getProperty("movie.search.page-size", Integer.class, 10);
+    }
+
+    private void addPageLinks(Model model, String title, String releaseYear, MovieSearchIndex.Field searchIn,
+            SearchPage searchPage) {
+        model.addAttribute("searchPage", searchPage);
+        if (searchPage.hasPrevious())
+            model.addAttribute("previousPageURL", SearchPage.url("/movies", title, releaseYear, searchIn,
+                    searchPage.page() - 1));
+        if (searchPage.hasNext())
+            model.addAttribute("nextPageURL", SearchPage.url("/movies", title, releaseYear, searchIn,
+                    searchPage.page() + 1));
+    }
+}
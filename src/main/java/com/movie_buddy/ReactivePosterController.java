@@ -0,0 +1,42 @@
+package com.movie_buddy;
+
+import java.nio.file.Files;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+// PosterController for the reactive profile. webflux writes a file resource
+// with netty's zero-copy file transfer, and answers a matching
+// If-Modified-Since with a 304 on its own
+@Controller
+@Profile("reactive")
+public class ReactivePosterController {
+
+    @Autowired
+    private PosterStore posterStore;
+
+    // a poster not yet on disk is downloaded on the bounded elastic scheduler
+    @GetMapping("/posters/{imdbID}")
+    @ResponseBody
+    public Mono<ResponseEntity<Resource>> getPoster(@PathVariable String imdbID) {
+        return Mono.fromCallable(() -> {
+            PosterStore.Poster poster = posterStore.getPoster(imdbID);
+
+            return ResponseEntity.ok()
+                    .cacheControl(posterStore.getCacheControl(poster))
+                    .lastModified(Files.getLastModifiedTime(poster.path()).toInstant())
+                    .contentType(posterStore.getMediaType(poster))
+                    .<Resource>body(new FileSystemResource(poster.path()));
+        }).subscribeOn(Schedulers.boundedElastic());
+    }
+}
@@ -0,0 +1,189 @@
+package com.movie_buddy;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.lettuce.core.ClientOptions;
+import io.lettuce.core.KeyValue;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisConnectionException;
+import io.lettuce.core.SetArgs;
+import io.lettuce.core.SocketOptions;
+import io.lettuce.core.TimeoutOptions;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.codec.ByteArrayCodec;
+import io.lettuce.core.codec.RedisCodec;
+import io.lettuce.core.codec.StringCodec;
+import io.lettuce.core.pubsub.RedisPubSubAdapter;
+import io.lettuce.core.pubsub.StatefulRedisPubSubConnection;
+
+// a SharedCacheStore on redis, through one connection for commands and one for
+// subscriptions. the connections are opened lazily, so an unreachable redis
+// never stops the application from starting: until it can be reached every
+// operation fails right away, and a new connection is tried at most every
+// RECONNECT_INTERVAL. once connected lettuce reconnects and resubscribes on its
+// own; while the server is unreachable commands fail right away instead of
+// queueing, so lookups fall through to omdb rather than wait on a dead cache
+public class RedisCacheStore implements SharedCacheStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(RedisCacheStore.class);
+
+    private static final Duration RECONNECT_INTERVAL = Duration.ofSeconds(5);
+
+    private record Subscription(String channel, Consumer<String> listener) {
+    }
+
+    private final RedisClient client;
+
+    private final Duration timeout;
+
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    // a lock rather than synchronized so waiting virtual threads are not pinned
+    private final ReentrantLock connectLock = new ReentrantLock();
+
+    private volatile StatefulRedisConnection<String, byte[]> connection;
+
+    private volatile StatefulRedisPubSubConnection<String, String> pubSubConnection;
+
+    private volatile long nextConnectAt = System.nanoTime();
+
+    private volatile boolean closed;
+
+    private boolean warned;
+
+    public RedisCacheStore(String url, Duration timeout) {
+        this.timeout = timeout;
+        this.client = RedisClient.create(url);
+        client.setOptions(ClientOptions.builder()
+                .socketOptions(SocketOptions.builder().connectTimeout(timeout).build())
+                .timeoutOptions(TimeoutOptions.enabled(timeout))
+                .disconnectedBehavior(ClientOptions.DisconnectedBehavior.REJECT_COMMANDS)
+                .build());
+    }
+
+    @Override
+    public Map<String, byte[]> getAll(List<String> keys) {
+        Map<String, byte[]> values = new HashMap<>();
+        if (keys.isEmpty())
+            return values;
+
+        for (KeyValue<String, byte[]> keyValue : connection().sync().mget(keys.toArray(String[]::new))) {
+            if (keyValue.hasValue())
+                values.put(keyValue.getKey(), keyValue.getValue());
+        }
+        return values;
+    }
+
+    @Override
+    public void put(String key, byte[] value, Duration timeToLive) {
+        connection().async().set(key, value, SetArgs.Builder.px(timeToLive.toMillis()));
+    }
+
+    @Override
+    public void publish(String channel, String message) {
+        connection().async().publish(channel, message.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // remembered, so the channel is subscribed to whenever redis is first reached
+    @Override
+    public void subscribe(String channel, Consumer<String> listener) {
+        Subscription subscription = new Subscription(channel, listener);
+        connectLock.lock();
+        try {
+            subscriptions.add(subscription);
+            if (pubSubConnection != null)
+                subscribe(pubSubConnection, subscription);
+        } catch (RuntimeException e) {
+            logger.warn("Could not subscribe to {} on the shared cache", channel, e);
+        } finally {
+            connectLock.unlock();
+        }
+        connect();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        connectLock.lock();
+        try {
+            if (pubSubConnection != null)
+                pubSubConnection.close();
+            if (connection != null)
+                connection.close();
+        } finally {
+            connectLock.unlock();
+        }
+        client.shutdown();
+    }
+
+    private StatefulRedisConnection<String, byte[]> connection() {
+        StatefulRedisConnection<String, byte[]> current = connection;
+        if (current == null) {
+            connect();
+            current = connection;
+        }
+        if (current == null)
+            throw new RedisConnectionException("The shared cache is not connected");
+        return current;
+    }
+
+    // made by whichever caller gets here first once the interval has passed;
+    // the others go on without waiting for it
+    private void connect() {
+        if (closed || connection != null || System.nanoTime() - nextConnectAt < 0 || !connectLock.tryLock())
+            return;
+
+        StatefulRedisPubSubConnection<String, String> pubSub = null;
+        try {
+            if (closed || connection != null)
+                return;
+            nextConnectAt = System.nanoTime() + RECONNECT_INTERVAL.toNanos();
+
+            // subscribed first, so no invalidation is missed once lookups are served
+            pubSub = client.connectPubSub();
+            for (Subscription subscription : subscriptions)
+                subscribe(pubSub, subscription);
+
+            StatefulRedisConnection<String, byte[]> commands = client.connect(
+                    RedisCodec.of(StringCodec.UTF8, ByteArrayCodec.INSTANCE));
+            commands.setTimeout(timeout);
+
+            pubSubConnection = pubSub;
+            connection = commands;
+            warned = false;
+            logger.info("Connected to the shared cache");
+        } catch (RuntimeException e) {
+            if (pubSub != null)
+                pubSub.closeAsync();
+            if (!warned)
+                logger.warn("Could not connect to the shared cache, running without it until it can be reached", e);
+            else
+                logger.debug("Could not connect to the shared cache", e);
+            warned = true;
+        } finally {
+            connectLock.unlock();
+        }
+    }
+
+    private static void subscribe(StatefulRedisPubSubConnection<String, String> pubSub,
+            Subscription subscription) {
+        pubSub.addListener(new RedisPubSubAdapter<>() {
+            @Override
+            public void message(String messageChannel, String message) {
+                if (messageChannel.equals(subscription.channel()))
+                    subscription.listener().accept(message);
+            }
+        });
+        pubSub.sync().subscribe(subscription.channel());
+    }
+}
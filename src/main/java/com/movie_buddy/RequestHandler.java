@@ -1,57 +1,442 @@
 package com.movie_buddy;
 
 import java.io.IOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.StandardEnvironment;
 import org.springframework.stereotype.Service;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import jakarta.annotation.PreDestroy;
+
 import okhttp3.Call;
 import okhttp3.Callback;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
 import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
 import okhttp3.Request;
 import okhttp3.Response;
 import okhttp3.ResponseBody;
 
 // enables an initial synchronous response to get movie ids,
 // enables asynchronous responses via futures for parallel requests and increased performance
+// with spring.threads.virtual.enabled, async calls run on virtual threads instead of
+// okhttp's pool of platform threads.
+// one client is shared by every search; its dispatcher limits, connection pool,
+// timeouts and protocols are configured with the omdb.client.* properties.
+// calls are subject to the OmdbRateLimiter when one is given: a search that cannot
+// get a permit fails right away, a detail call waits for one off the caller's thread.
+// every call is observed as omdb.requests, tagged with its type and response status,
+// and becomes a child span of whatever observation is current when it is made.
+// once it has a permit, and just before it is sent, a call must get past the
+// CircuitBreaker and the AdaptiveConcurrencyLimit; one that does not fails right
+// away with UpstreamUnavailableException, so a slow or failing omdb sheds load
+// here instead of piling up calls and the searches waiting on them. calls still
+// waiting for a permit take no slot, so only calls sent to omdb are limited, and
+// a refused call hands its permit back so it does not count against the day
 @Service
-public class RequestHandler {
-    private final OkHttpClient client = new OkHttpClient();
+public class RequestHandler implements MeterBinder {
+    // how soon a call refused by the concurrency limit may be tried again
+    private static final Duration LIMIT_RETRY_AFTER = Duration.ofSeconds(1);
+
+    private final OkHttpClient client;
+
+    private final OmdbRateLimiter rateLimiter;
+
+    private final ObservationRegistry observationRegistry;
+
+    private final AdaptiveConcurrencyLimit concurrencyLimit;
+
+    private final CircuitBreaker circuitBreaker;
+
+    private Counter rejectedByLimit;
+
+    private Counter rejectedByBreaker;
+
+    // detail calls waiting on the rate limiter park here instead of on the caller
+    private final ExecutorService permitExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public RequestHandler() {
+        this(new StandardEnvironment());
+    }
+
+    public RequestHandler(Environment environment) {
+        this(environment, null);
+    }
+
+    public RequestHandler(Environment environment, OmdbRateLimiter rateLimiter) {
+        this(environment, rateLimiter, ObservationRegistry.NOOP);
+    }
+
+    @Autowired
+    public RequestHandler(Environment environment, OmdbRateLimiter rateLimiter,
+            ObservationRegistry observationRegistry) {
+        this.rateLimiter = rateLimiter;
+        this.observationRegistry = observationRegistry;
+        this.concurrencyLimit = new AdaptiveConcurrencyLimit(environment);
+        this.circuitBreaker = new CircuitBreaker(environment);
+
+        Dispatcher dispatcher = environment.getProperty("spring.threads.virtual.enabled", Boolean.class, false)
+                ? new Dispatcher(Executors.newVirtualThreadPerTaskExecutor())
+                : new Dispatcher();
+        dispatcher.setMaxRequests(environment.getProperty("omdb.client.max-requests", Integer.class, 128));
+        // okhttp's default of 5 per host is fewer than the detail calls of a single
+        // search, and every call goes to the same omdb host
+        dispatcher.setMaxRequestsPerHost(
+                environment.getProperty("omdb.client.max-requests-per-host", Integer.class, 32));
+
+        ConnectionPool connectionPool = new ConnectionPool(
+                environment.getProperty("omdb.client.max-idle-connections", Integer.class, 32),
+                getDuration(environment, "omdb.client.keep-alive", Duration.ofMinutes(5)).toMillis(),
+                TimeUnit.MILLISECONDS);
+
+        List<Protocol> protocols = Arrays.stream(
+                environment.getProperty("omdb.client.protocols", String[].class, new String[] { "h2", "http/1.1" }))
+                .map(String::strip)
+                .map(RequestHandler::getProtocol)
+                .toList();
+
+        this.client = new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(connectionPool)
+                .protocols(protocols)
+                .connectTimeout(getDuration(environment, "omdb.client.connect-timeout", Duration.ofSeconds(5)))
+                .readTimeout(getDuration(environment, "omdb.client.read-timeout", Duration.ofSeconds(10)))
+                .callTimeout(getDuration(environment, "omdb.client.call-timeout", Duration.ofSeconds(15)))
+                .build();
+    }
+
+    // calls waiting for a free slot in the dispatcher
+    public int getQueuedCallCount() {
+        return client.dispatcher().queuedCallsCount();
+    }
 
+    // calls currently executing, both synchronous and asynchronous
+    public int getRunningCallCount() {
+        return client.dispatcher().runningCallsCount();
+    }
+
+    public int getIdleConnectionCount() {
+        return client.connectionPool().idleConnectionCount();
+    }
+
+    public int getConnectionCount() {
+        return client.connectionPool().connectionCount();
+    }
+
+    public AdaptiveConcurrencyLimit getConcurrencyLimit() {
+        return concurrencyLimit;
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("omdb.client.calls", this, RequestHandler::getQueuedCallCount)
+                .tag("state", "queued")
+                .description("omdb calls in the okhttp dispatcher")
+                .register(registry);
+        Gauge.builder("omdb.client.calls", this, RequestHandler::getRunningCallCount)
+                .tag("state", "running")
+                .description("omdb calls in the okhttp dispatcher")
+                .register(registry);
+        Gauge.builder("omdb.client.connections", this, RequestHandler::getIdleConnectionCount)
+                .tag("state", "idle")
+                .description("connections in the okhttp connection pool")
+                .register(registry);
+        Gauge.builder("omdb.client.connections", this, RequestHandler::getConnectionCount)
+                .tag("state", "all")
+                .description("connections in the okhttp connection pool")
+                .register(registry);
+
+        Gauge.builder("omdb.client.limit", concurrencyLimit, AdaptiveConcurrencyLimit::getLimit)
+                .description("omdb calls allowed to be outstanding at once")
+                .register(registry);
+        Gauge.builder("omdb.client.limit.in-flight", concurrencyLimit, AdaptiveConcurrencyLimit::getInFlight)
+                .description("omdb calls outstanding against the concurrency limit")
+                .register(registry);
+        for (CircuitBreaker.State state : CircuitBreaker.State.values())
+            Gauge.builder("omdb.client.breaker.state", circuitBreaker,
+                    breaker -> breaker.getState() == state ? 1 : 0)
+                    .tag("state", state.name().toLowerCase())
+                    .description("1 for the circuit breaker's current state, 0 for the others")
+                    .register(registry);
+        FunctionCounter.builder("omdb.client.breaker.opened", circuitBreaker, CircuitBreaker::getTimesOpened)
+                .description("Times the circuit breaker opened")
+                .register(registry);
+
+        this.rejectedByLimit = Counter.builder("omdb.client.rejected")
+                .tag("reason", "limit")
+                .description("omdb calls refused before being made")
+                .register(registry);
+        this.rejectedByBreaker = Counter.builder("omdb.client.rejected")
+                .tag("reason", "breaker")
+                .description("omdb calls refused before being made")
+                .register(registry);
+    }
+
+    // throws UpstreamUnavailableException when the call is refused
     public String getInitialResponse(String url) throws IOException {
         Request request = new Request.Builder()
                 .url(url)
                 .build();
 
+        if (rateLimiter != null && !rateLimiter.acquire(OmdbRateLimiter.Priority.SEARCH))
+            throw new RequestLimitExceededException();
+
+        Admission admission;
+        try {
+            admission = admit();
+        } catch (UpstreamUnavailableException e) {
+            // nothing reaches omdb, so the permit is not spent
+            releasePermit();
+            throw e;
+        }
+
+        Observation observation = startObservation("search", null);
+        admission.start();
         try (Response response = client.newCall(request).execute()) {
-            return response.body().string();
+            observation.lowCardinalityKeyValue("status", String.valueOf(response.code()));
+            String body = response.body().string();
+            admission.answered(response.code());
+            return body;
+        } catch (IOException e) {
+            admission.failed();
+            observation.lowCardinalityKeyValue("status", "IO_ERROR");
+            observation.error(e);
+            throw e;
+        } finally {
+            // anything else thrown on the way gives the slots back unjudged
+            admission.ignored();
+            observation.stop();
         }
     }
 
+    // the initial search without blocking the caller, for the reactive stack.
+    // a search waiting on the rate limiter still goes ahead of detail calls
+    public CompletableFuture<String> getInitialResponseAsync(String url) {
+        return getAsyncResponse(url, OmdbRateLimiter.Priority.SEARCH);
+    }
+
+    // cancelling the returned future cancels the underlying call.
+    // completes with RequestLimitExceededException when no permit is granted
     public CompletableFuture<String> getDetailedResponse(String url) {
+        return getAsyncResponse(url, OmdbRateLimiter.Priority.DETAIL);
+    }
+
+    // completes with UpstreamUnavailableException when the call is refused
+    private CompletableFuture<String> getAsyncResponse(String url, OmdbRateLimiter.Priority priority) {
         CompletableFuture<String> future = new CompletableFuture<>();
+        // captured here since the call completes, and may be enqueued, on another thread
+        Observation parent = observationRegistry.getCurrentObservation();
 
-        Request request = new Request.Builder()
-                .url(url)
-                .build();
+        Request request;
+        try {
+            request = new Request.Builder()
+                    .url(url)
+                    .build();
+        } catch (IllegalArgumentException e) {
+            future.completeExceptionally(e);
+            return future;
+        }
+
+        if (rateLimiter == null || rateLimiter.tryAcquire(priority)) {
+            enqueue(request, future, priority, parent);
+            return future;
+        }
+
+        permitExecutor.execute(() -> {
+            if (future.isDone())
+                return;
+
+            if (rateLimiter.acquire(priority))
+                enqueue(request, future, priority, parent);
+            else
+                future.completeExceptionally(new RequestLimitExceededException());
+        });
 
-        client.newCall(request).enqueue(new Callback() {
-            @Override
-            public void onFailure(Call call, IOException e) {
-                future.completeExceptionally(e);
+        return future;
+    }
+
+    private void enqueue(Request request, CompletableFuture<String> future, OmdbRateLimiter.Priority priority,
+            Observation parent) {
+        // nothing reaches omdb when the call was cancelled while it waited for
+        // its permit, or is refused here, so the permit is handed back
+        Admission admission;
+        try {
+            if (future.isDone()) {
+                releasePermit();
+                return;
             }
+            admission = admit();
+        } catch (UpstreamUnavailableException e) {
+            releasePermit();
+            future.completeExceptionally(e);
+            return;
+        }
+
+        try {
+            Observation observation = startObservation(
+                    priority == OmdbRateLimiter.Priority.SEARCH ? "search" : "detail", parent);
+            Call call = client.newCall(request);
+            // the observation stops with the future, whichever way it completes
+            future.whenComplete((body, e) -> {
+                if (future.isCancelled()) {
+                    admission.ignored();
+                    observation.lowCardinalityKeyValue("status", "CANCELLED");
+                    call.cancel();
+                } else if (e != null) {
+                    observation.error(e);
+                }
+                observation.stop();
+            });
 
-            @Override
-            public void onResponse(Call call, Response response) throws IOException {
-                try (ResponseBody responseBody = response.body()) {
-                    if (!response.isSuccessful())
-                        future.completeExceptionally(new IOException("Unexpected code " + response));
+            admission.start();
+            call.enqueue(new Callback() {
+                @Override
+                public void onFailure(Call call, IOException e) {
+                    if (call.isCanceled())
+                        admission.ignored();
                     else
-                        future.complete(responseBody.string());
+                        admission.failed();
+                    observation.lowCardinalityKeyValue("status", "IO_ERROR");
+                    future.completeExceptionally(e);
                 }
+
+                @Override
+                public void onResponse(Call call, Response response) throws IOException {
+                    observation.lowCardinalityKeyValue("status", String.valueOf(response.code()));
+                    try (ResponseBody responseBody = response.body()) {
+                        if (!response.isSuccessful()) {
+                            admission.answered(response.code());
+                            future.completeExceptionally(new IOException("Unexpected code " + response));
+                        } else {
+                            String body = responseBody.string();
+                            admission.answered(response.code());
+                            future.complete(body);
+                        }
+                    } catch (IOException e) {
+                        admission.failed();
+                        throw e;
+                    } finally {
+                        admission.ignored();
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            admission.ignored();
+            future.completeExceptionally(e);
+        }
+    }
+
+    // detail calls still waiting for a permit are interrupted and fail
+    @PreDestroy
+    public void close() {
+        permitExecutor.shutdownNow();
+    }
+
+    private void releasePermit() {
+        if (rateLimiter != null)
+            rateLimiter.release();
+    }
+
+    // takes a slot from the breaker and the concurrency limit, or refuses the call
+    private Admission admit() {
+        if (!circuitBreaker.tryAcquire()) {
+            if (rejectedByBreaker != null)
+                rejectedByBreaker.increment();
+            throw new UpstreamUnavailableException("omdb is failing too often and is not being called for now",
+                    circuitBreaker.getRetryAfter());
+        }
+
+        if (!concurrencyLimit.tryAcquire()) {
+            circuitBreaker.onIgnore();
+            if (rejectedByLimit != null)
+                rejectedByLimit.increment();
+            throw new UpstreamUnavailableException("omdb is answering too slowly for more calls right now",
+                    LIMIT_RETRY_AFTER);
+        }
+
+        return new Admission();
+    }
+
+    // an admitted call's slots, given back once with its outcome whichever of
+    // completion, failure and cancellation comes first. latency runs from when
+    // the call is handed to okhttp, so time spent in the dispatcher's queue
+    // counts but time waiting on the rate limiter does not
+    private final class Admission {
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private volatile long startedAt;
+
+        void start() {
+            startedAt = System.nanoTime();
+        }
+
+        // omdb answered; only server errors count against it
+        void answered(int code) {
+            if (code >= 500) {
+                failed();
+                return;
             }
-        });
+            if (released.compareAndSet(false, true)) {
+                long latency = System.nanoTime() - startedAt;
+                concurrencyLimit.onSuccess(latency);
+                circuitBreaker.onSuccess(latency);
+            }
+        }
 
-        return future;
+        void failed() {
+            if (released.compareAndSet(false, true)) {
+                concurrencyLimit.onFailure();
+                circuitBreaker.onFailure();
+            }
+        }
+
+        void ignored() {
+            if (released.compareAndSet(false, true)) {
+                concurrencyLimit.onIgnore();
+                circuitBreaker.onIgnore();
+            }
+        }
+    }
+
+    private Observation startObservation(String type, Observation parent) {
+        return Observation.createNotStarted("omdb.requests", observationRegistry)
+                .contextualName("omdb " + type)
+                .lowCardinalityKeyValue("type", type)
+                .parentObservation(parent)
+                .start();
+    }
+
+    private static Protocol getProtocol(String protocol) {
+        try {
+            return Protocol.get(protocol);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Unknown omdb.client.protocols entry: " + protocol, e);
+        }
+    }
+
+    private static Duration getDuration(Environment environment, String key, Duration defaultValue) {
+        return environment.getProperty(key, Duration.class, defaultValue);
     }
 }
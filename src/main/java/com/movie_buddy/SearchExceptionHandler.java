@@ -1,9 +1,13 @@
 package com.movie_buddy;
 
+import org.springframework.http.HttpStatus;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.MissingServletRequestParameterException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
+import org.springframework.web.server.ServerWebInputException;
 
 @ControllerAdvice
 public class SearchExceptionHandler {
@@ -14,9 +18,32 @@ public class SearchExceptionHandler {
         return "error";
     }
 
+    // such as an unknown searchIn field
+    @ExceptionHandler(MethodArgumentTypeMismatchException.class)
+    public String handleMethodArgumentTypeMismatchException(MethodArgumentTypeMismatchException ex, Model model) {
+        model.addAttribute("errorMessage", "Unsupported value for " + ex.getName() + ": " + ex.getValue());
+        return "error";
+    }
+
+    // the reactive profile's counterpart of a missing request parameter
+    @ExceptionHandler(ServerWebInputException.class)
+    public String handleServerWebInputException(ServerWebInputException ex, Model model) {
+        model.addAttribute("errorMessage", ex.getReason());
+        return "error";
+    }
+
     @ExceptionHandler(RequestLimitExceededException.class)
     public String handleRequestLimitExceededException(RequestLimitExceededException ex, Model model) {
         model.addAttribute("errorMessage", ex.getMessage());
         return "error";
     }
+
+    // omdb calls are being refused to shed load, and the index had nothing to
+    // offer instead. answered right away so the page is not held up
+    @ExceptionHandler(UpstreamUnavailableException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public String handleUpstreamUnavailableException(UpstreamUnavailableException ex, Model model) {
+        model.addAttribute("errorMessage", "Movie details are unavailable right now, please try again in a moment");
+        return "error";
+    }
 }
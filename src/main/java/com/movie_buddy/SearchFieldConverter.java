@@ -0,0 +1,16 @@
+package com.movie_buddy;
+
+import java.util.Locale;
+
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.stereotype.Component;
+
+// lets the searchIn request parameter be given in lower case, as the form sends it
+@Component
+public class SearchFieldConverter implements Converter<String, MovieSearchIndex.Field> {
+
+    @Override
+    public MovieSearchIndex.Field convert(String source) {
+        return MovieSearchIndex.Field.valueOf(source.strip().toUpperCase(Locale.ROOT));
+    }
+}
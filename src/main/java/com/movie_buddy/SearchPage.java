@@ -0,0 +1,56 @@
+package com.movie_buddy;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+import org.springframework.web.util.UriComponentsBuilder;
+
+// one page of a search's imdbIDs. deep searches are rendered a page at a time,
+// so only the movies on the requested page have their details fetched
+public record SearchPage(List<String> movieIDs, int page, int totalPages) {
+
+    // where this page links to, for pages whose results are streamed in; a url
+    // is null when there is no such page
+    public record Links(int page, int totalPages, String previousURL, String nextURL) {
+    }
+
+    // page is clamped to the pages available
+    public static SearchPage of(List<String> allMovieIDs, int page, int pageSize) {
+        int totalPages = Math.max(1, (allMovieIDs.size() + pageSize - 1) / pageSize);
+        int currentPage = Math.min(Math.max(1, page), totalPages);
+        int from = Math.min((currentPage - 1) * pageSize, allMovieIDs.size());
+        int to = Math.min(from + pageSize, allMovieIDs.size());
+
+        return new SearchPage(allMovieIDs.subList(from, to), currentPage, totalPages);
+    }
+
+    public boolean hasPrevious() {
+        return page > 1;
+    }
+
+    public boolean hasNext() {
+        return page < totalPages;
+    }
+
+    public Links links(String path, String title, String releaseYear, MovieSearchIndex.Field searchIn) {
+        return new Links(page, totalPages,
+                hasPrevious() ? url(path, title, releaseYear, searchIn, page - 1) : null,
+                hasNext() ? url(path, title, releaseYear, searchIn, page + 1) : null);
+    }
+
+    // link to a page of the same search, leaving out the defaults of a title
+    // search and the first page
+    public static String url(String path, String title, String releaseYear, MovieSearchIndex.Field searchIn,
+            int page) {
+        return UriComponentsBuilder.fromPath(path)
+                .queryParam("title", title)
+                .queryParamIfPresent("releaseYear", Optional.ofNullable(releaseYear))
+                .queryParamIfPresent("searchIn", searchIn == MovieSearchIndex.Field.TITLE
+                        ? Optional.empty()
+                        : Optional.of(searchIn.name().toLowerCase(Locale.ROOT)))
+                .queryParamIfPresent("page", page > 1 ? Optional.of(page) : Optional.empty())
+                .encode()
+                .toUriString();
+    }
+}
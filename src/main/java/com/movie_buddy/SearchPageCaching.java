@@ -0,0 +1,51 @@
+package com.movie_buddy;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Objects;
+
+import org.springframework.core.env.Environment;
+import org.springframework.http.CacheControl;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+// etags and cache headers for rendered search pages, so browsers and a reverse
+// proxy in front of the application can serve repeated searches.
+// the etag is worked out from the request and the versions of the movies on
+// the page before anything is rendered, so a matching If-None-Match is answered
+// with a 304 without touching the templates. pages are shared, the same for
+// every visitor, and fresh for movie.search.http.max-age
+@Component
+public class SearchPageCaching {
+
+    // a new build may render the same movies differently
+    private static final String APPLICATION_VERSION = Objects.toString(
+            SearchPageCaching.class.getPackage().getImplementationVersion(), "dev");
+
+    private final CacheControl cacheControl;
+
+    public SearchPageCaching(Environment environment) {
+        Duration maxAge = environment.getProperty("movie.search.http.max-age", Duration.class,
+                Duration.ofMinutes(5));
+        this.cacheControl = CacheControl.maxAge(maxAge).cachePublic();
+    }
+
+    // searchPage is null when nothing was found
+    public String etag(String title, String releaseYear, MovieSearchIndex.Field searchIn, SearchPage searchPage,
+            MovieResults movieResults) {
+        // the title is part of the page's links as typed, so it is not folded
+        String versions = String.join("\n", APPLICATION_VERSION,
+                title, Objects.toString(releaseYear, ""), searchIn.name(),
+                searchPage == null ? "" : searchPage.page() + "/" + searchPage.totalPages(),
+                MovieCardRenderer.version(movieResults.movies()),
+                String.join(",", movieResults.missingMovieIDs()));
+
+        return "\"" + DigestUtils.md5DigestAsHex(versions.getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+
+    // a page missing movies that timed out is checked again every time, since a
+    // retry may well find them
+    public CacheControl cacheControl(MovieResults movieResults) {
+        return movieResults.isPartial() ? CacheControl.noCache() : cacheControl;
+    }
+}
@@ -0,0 +1,27 @@
+package com.movie_buddy;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+// envelope of omdb's &s= search response.
+// only the imdbID of each result is kept, every other field is skipped by the reader
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record SearchResponse(
+        @JsonProperty("Search") List<Result> results,
+        @JsonProperty("totalResults") String totalResults,
+        @JsonProperty("Error") String error) {
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Result(@JsonProperty("imdbID") String imdbID) {
+    }
+
+    public boolean isRequestLimitReached() {
+        return error != null && error.contains("Request limit reached!");
+    }
+
+    public boolean isMovieNotFound() {
+        return error != null && error.contains("Movie not found!");
+    }
+}
@@ -0,0 +1,92 @@
+package com.movie_buddy;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+// caches the imdbIDs returned by the initial omdb search, keyed by a
+// case and whitespace folded title plus release year.
+// searches omdb answered with "Movie not found!" are cached as an empty list
+// with their own, usually shorter, time-to-live.
+// published as cache metrics named movie.search
+@Component
+public class SearchResultsCache implements MeterBinder {
+
+    private static final List<String> NOT_FOUND = List.of();
+
+    private final Cache<String, List<String>> cache;
+
+    public SearchResultsCache(Environment environment) {
+        long maximumSize = environment.getProperty("movie.cache.search.maximum-size", Long.class, 10_000L);
+        Duration timeToLive = environment.getProperty("movie.cache.search.time-to-live", Duration.class,
+                Duration.ofHours(1));
+        Duration notFoundTimeToLive = environment.getProperty("movie.cache.search.not-found-time-to-live",
+                Duration.class, Duration.ofMinutes(10));
+
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new Expiry<String, List<String>>() {
+                    @Override
+                    public long expireAfterCreate(String key, List<String> movieIDs, long currentTime) {
+                        return movieIDs.isEmpty() ? notFoundTimeToLive.toNanos() : timeToLive.toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, List<String> movieIDs, long currentTime,
+                            long currentDuration) {
+                        return expireAfterCreate(key, movieIDs, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, List<String> movieIDs, long currentTime,
+                            long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+    }
+
+    // returns null on a miss and an empty list for a cached "Movie not found!"
+    public List<String> get(String title, String releaseYear) {
+        return cache.getIfPresent(key(title, releaseYear));
+    }
+
+    public void put(String title, String releaseYear, List<String> movieIDs) {
+        cache.put(key(title, releaseYear), List.copyOf(movieIDs));
+    }
+
+    public void putNotFound(String title, String releaseYear) {
+        cache.put(key(title, releaseYear), NOT_FOUND);
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "movie.search");
+    }
+
+    static String key(String title, String releaseYear) {
+        String normalizedTitle = title == null
+                ? ""
+                : title.strip().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+        String normalizedYear = releaseYear == null ? "" : releaseYear.strip();
+
+        return normalizedTitle + "|" + normalizedYear;
+    }
+}
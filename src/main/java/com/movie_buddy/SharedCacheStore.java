@@ -0,0 +1,26 @@
+package com.movie_buddy;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+// the few operations SharedMovieCache needs from a key-value store every
+// instance can reach: RedisCacheStore in production, InMemoryCacheStore in
+// tests and when a single instance runs on its own
+public interface SharedCacheStore extends AutoCloseable {
+
+    // the values of the keys present; missing and expired keys are left out
+    Map<String, byte[]> getAll(List<String> keys);
+
+    // does not wait for the write to complete
+    void put(String key, byte[] value, Duration timeToLive);
+
+    // delivered to every subscriber of the channel, this instance included
+    void publish(String channel, String message);
+
+    void subscribe(String channel, Consumer<String> listener);
+
+    @Override
+    void close();
+}
@@ -0,0 +1,194 @@
+package com.movie_buddy;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+
+// movie details shared by every instance behind the load balancer, beneath each
+// one's MovieDetailsCache, so the cluster fetches a title from omdb once rather
+// than once per instance. off unless movie.cache.shared.enabled is set.
+// movies are stored in MovieCodec's binary form for movie.cache.shared.time-to-live.
+// the local cache acts as a near cache: an instance that fetches a movie again
+// publishes its imdbID, and every other instance drops its local copy so its
+// next lookup reads the new one from here. the shared cache is an optimization
+// only; when the store cannot be reached lookups count as misses
+@Component
+public class SharedMovieCache implements MeterBinder {
+
+    public enum Store {
+        REDIS, IN_MEMORY
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(SharedMovieCache.class);
+
+    // marks the invalidations this instance publishes, so it skips its own
+    private final String instanceID = UUID.randomUUID().toString();
+
+    private final MovieDetailsCache detailsCache;
+
+    // null when disabled
+    private final SharedCacheStore store;
+
+    private final Duration timeToLive;
+
+    private final String keyPrefix;
+
+    private final String invalidationChannel;
+
+    private Counter hits;
+
+    private Counter misses;
+
+    private Counter errors;
+
+    private Counter invalidations;
+
+    @Autowired
+    public SharedMovieCache(MovieDetailsCache detailsCache, Environment environment) {
+        this(detailsCache, environment.getProperty("movie.cache.shared.enabled", Boolean.class, false)
+                ? createStore(environment)
+                : null, environment);
+    }
+
+    public SharedMovieCache(MovieDetailsCache detailsCache, SharedCacheStore store, Environment environment) {
+        this.detailsCache = detailsCache;
+        this.store = store;
+        this.timeToLive = environment.getProperty("movie.cache.shared.time-to-live", Duration.class,
+                Duration.ofHours(24));
+        String namespace = environment.getProperty("movie.cache.shared.namespace", "movie-buddy");
+        this.keyPrefix = namespace + ":movie:";
+        this.invalidationChannel = namespace + ":invalidations";
+
+        if (store != null)
+            store.subscribe(invalidationChannel, this::onInvalidation);
+    }
+
+    private static SharedCacheStore createStore(Environment environment) {
+        return switch (environment.getProperty("movie.cache.shared.store", Store.class, Store.REDIS)) {
+            case REDIS -> new RedisCacheStore(
+                    environment.getProperty("movie.cache.shared.url", "redis://localhost:6379"),
+                    environment.getProperty("movie.cache.shared.timeout", Duration.class, Duration.ofMillis(250)));
+            case IN_MEMORY -> new InMemoryCacheStore(
+                    environment.getProperty("movie.cache.shared.maximum-size", Long.class, 10_000L));
+        };
+    }
+
+    public boolean isEnabled() {
+        return store != null;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        this.hits = registry.counter("movie.cache.shared.requests", "result", "hit");
+        this.misses = registry.counter("movie.cache.shared.requests", "result", "miss");
+        this.errors = registry.counter("movie.cache.shared.requests", "result", "error");
+        this.invalidations = Counter.builder("movie.cache.shared.invalidations")
+                .description("Local copies dropped because another instance fetched the movie again")
+                .register(registry);
+    }
+
+    // the movies the shared cache holds, by imdbID, in one round trip.
+    // entries written by a build with another MovieCodec version count as misses
+    public Map<String, Movie> getAll(List<String> imdbIDs) {
+        Map<String, Movie> movies = new HashMap<>();
+        if (store == null || imdbIDs.isEmpty())
+            return movies;
+
+        Map<String, byte[]> stored;
+        try {
+            stored = store.getAll(imdbIDs.stream().map(this::key).toList());
+        } catch (RuntimeException e) {
+            logger.debug("Could not read from the shared cache", e);
+            increment(errors, imdbIDs.size());
+            return movies;
+        }
+
+        for (String imdbID : imdbIDs) {
+            byte[] bytes = stored.get(key(imdbID));
+            Movie movie = bytes == null ? null : decode(bytes);
+            if (movie != null)
+                movies.put(imdbID, movie);
+        }
+        increment(hits, movies.size());
+        increment(misses, imdbIDs.size() - movies.size());
+        return movies;
+    }
+
+    // a movie another source already had, such as the movies table
+    public void put(Movie movie) {
+        write(movie);
+    }
+
+    // a movie just fetched from omdb: stored, and every other instance told to
+    // drop the copy it holds locally
+    public void update(Movie movie) {
+        if (write(movie)) {
+            try {
+                store.publish(invalidationChannel, instanceID + " " + movie.getImdbID());
+            } catch (RuntimeException e) {
+                logger.debug("Could not publish an update of {}", movie.getImdbID(), e);
+                increment(errors, 1);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        if (store != null)
+            store.close();
+    }
+
+    private boolean write(Movie movie) {
+        if (store == null || movie == null || movie.getImdbID() == null)
+            return false;
+
+        try {
+            store.put(key(movie.getImdbID()), MovieCodec.encode(movie), timeToLive);
+            return true;
+        } catch (RuntimeException e) {
+            logger.debug("Could not write {} to the shared cache", movie.getImdbID(), e);
+            increment(errors, 1);
+            return false;
+        }
+    }
+
+    private void onInvalidation(String message) {
+        int separator = message.indexOf(' ');
+        if (separator < 0 || message.substring(0, separator).equals(instanceID))
+            return;
+
+        detailsCache.invalidate(message.substring(separator + 1));
+        increment(invalidations, 1);
+    }
+
+    private String key(String imdbID) {
+        return keyPrefix + imdbID;
+    }
+
+    private static Movie decode(byte[] bytes) {
+        try {
+            return MovieCodec.decode(bytes);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    // counters are only there once bound to a registry
+    private static void increment(Counter counter, int amount) {
+        if (counter != null && amount > 0)
+            counter.increment(amount);
+    }
+}
@@ -0,0 +1,60 @@
+package com.movie_buddy;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.env.Environment;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.stereotype.Component;
+
+// logs the slowest steps of startup once the application is ready, so a slow
+// cold start can be traced to the beans or phases responsible without a
+// profiler. the full timeline stays on /actuator/startup.
+// only the steps recorded by a BufferingApplicationStartup are seen, which
+// MovieBuddyApplication installs
+@Component
+public class StartupTimings implements ApplicationListener<ApplicationReadyEvent> {
+
+    private static final Logger logger = LoggerFactory.getLogger(StartupTimings.class);
+
+    private final int slowestSteps;
+
+    public StartupTimings(Environment environment) {
+        this.slowestSteps = environment.getProperty("movie.startup.log-slowest-steps", Integer.class, 10);
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        if (slowestSteps <= 0)
+            return;
+        if (!(event.getApplicationContext().getApplicationStartup() instanceof BufferingApplicationStartup startup))
+            return;
+
+        // durations include nested steps, so a bean's time covers its dependencies
+        List<StartupTimeline.TimelineEvent> slowest = startup.getBufferedTimeline().getEvents().stream()
+                .sorted(Comparator.comparing(StartupTimeline.TimelineEvent::getDuration).reversed())
+                .limit(slowestSteps)
+                .toList();
+
+        logger.info("Ready in {} ms, slowest startup steps:{}", event.getTimeTaken().toMillis(),
+                slowest.stream()
+                        .map(timelineEvent -> "\n  " + timelineEvent.getDuration().toMillis() + " ms "
+                                + describe(timelineEvent.getStartupStep()))
+                        .collect(Collectors.joining()));
+    }
+
+    private static String describe(StartupStep step) {
+        String tags = StreamSupport.stream(step.getTags().spliterator(), false)
+                .map(tag -> tag.getKey() + "=" + tag.getValue())
+                .collect(Collectors.joining(", "));
+        return tags.isEmpty() ? step.getName() : step.getName() + " [" + tags + "]";
+    }
+}
@@ -0,0 +1,20 @@
+package com.movie_buddy;
+
+import java.time.Duration;
+
+// a call to omdb refused before it was made, because the circuit breaker is
+// open or the adaptive concurrency limit is full. retryAfter is when trying
+// again may succeed
+public class UpstreamUnavailableException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public UpstreamUnavailableException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
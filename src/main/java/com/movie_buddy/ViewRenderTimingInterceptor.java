@@ -0,0 +1,55 @@
+package com.movie_buddy;
+
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.ModelAndView;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+// times thymeleaf rendering on its own as movie.view.render, tagged with the view
+// name. http.server.requests covers the whole request; this is the part of it
+// spent after the controller returned
+@Component
+@Profile("!reactive")
+public class ViewRenderTimingInterceptor implements HandlerInterceptor {
+
+    private static final String START_ATTRIBUTE = ViewRenderTimingInterceptor.class.getName() + ".start";
+
+    private static final String VIEW_ATTRIBUTE = ViewRenderTimingInterceptor.class.getName() + ".view";
+
+    private final MeterRegistry meterRegistry;
+
+    public ViewRenderTimingInterceptor(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler,
+            ModelAndView modelAndView) {
+        if (modelAndView == null || modelAndView.getViewName() == null)
+            return;
+
+        request.setAttribute(VIEW_ATTRIBUTE, modelAndView.getViewName());
+        request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+            Exception ex) {
+        if (!(request.getAttribute(START_ATTRIBUTE) instanceof Long start))
+            return;
+
+        Timer.builder("movie.view.render")
+                .description("Time spent rendering a view after its controller returned")
+                .tag("view", (String) request.getAttribute(VIEW_ATTRIBUTE))
+                .tag("outcome", ex == null ? "SUCCESS" : "ERROR")
+                .register(meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,22 @@
+package com.movie_buddy;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+@Profile("!reactive")
+public class WebConfiguration implements WebMvcConfigurer {
+
+    private final ViewRenderTimingInterceptor viewRenderTimingInterceptor;
+
+    public WebConfiguration(ViewRenderTimingInterceptor viewRenderTimingInterceptor) {
+        this.viewRenderTimingInterceptor = viewRenderTimingInterceptor;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(viewRenderTimingInterceptor);
+    }
+}
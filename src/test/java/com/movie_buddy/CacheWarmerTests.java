@@ -0,0 +1,110 @@
+package com.movie_buddy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.mock.env.MockEnvironment;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class CacheWarmerTests {
+
+    private final MockEnvironment environment = warmUpEnvironment();
+
+    private final MovieService movieService = mock(MovieService.class);
+
+    private final MovieDetailsCache detailsCache = new MovieDetailsCache(environment);
+
+    private final PopularSearches popularSearches = new PopularSearches(environment);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    // every cached movie is within the refresh-ahead window
+    private static MockEnvironment warmUpEnvironment() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("movie.warmup.titles", "alien, heat")
+                .withProperty("movie.cache.details.time-to-live", "1h")
+                .withProperty("movie.warmup.refresh-ahead", "2h");
+        environment.setConversionService(new ApplicationConversionService());
+        return environment;
+    }
+
+    private static Movie movie(String imdbID) throws IOException {
+        return OmdbResponseReader.readMovie("{\"imdbID\":\"" + imdbID + "\",\"Response\":\"True\"}");
+    }
+
+    private CacheWarmer cacheWarmer() {
+        CacheWarmer cacheWarmer = new CacheWarmer(movieService, detailsCache, popularSearches, environment);
+        cacheWarmer.setMeterRegistry(meterRegistry);
+        return cacheWarmer;
+    }
+
+    // the seed titles' movies are loaded, through the store, before startup finishes
+    @Test
+    void startupLoadsTheMoviesOfEachSeedTitle() throws Exception {
+        when(movieService.findMoviesWithIds("alien", null)).thenReturn(List.of("tt0078748"));
+        when(movieService.findMoviesWithIds("heat", null)).thenReturn(List.of("tt0113277"));
+        when(movieService.getMovieResults(List.of("tt0078748")))
+                .thenReturn(new MovieResults(List.of(movie("tt0078748")), List.of()));
+        when(movieService.getMovieResults(List.of("tt0113277")))
+                .thenReturn(new MovieResults(List.of(), List.of("tt0113277")));
+
+        cacheWarmer().run(null);
+
+        verify(movieService).getMovieResults(List.of("tt0078748"));
+        verify(movieService).getMovieResults(List.of("tt0113277"));
+        // the movie that did not load is not counted
+        assertThat(meterRegistry.counter("movie.warmup.refreshed").count()).isEqualTo(1);
+    }
+
+    // cached movies close to expiring are fetched again rather than reloaded
+    // from the store, which may hold the same stale details
+    @Test
+    void refreshAheadFetchesMoviesAboutToExpire() throws Exception {
+        Movie alien = OmdbResponseReader.readMovie("{\"Title\":\"Alien\",\"Year\":\"1979\",\"imdbID\":\"tt0078748\",\"Response\":\"True\"}");
+        detailsCache.put(alien);
+
+        when(movieService.findMoviesWithIds(anyString(), any())).thenReturn(List.of("tt0078748"));
+        when(movieService.fetchMovieWithDetails("tt0078748")).thenReturn(CompletableFuture.completedFuture(alien));
+
+        cacheWarmer().refreshAhead();
+
+        verify(movieService, never()).getMovieResults(anyList());
+        verify(movieService).fetchMovieWithDetails("tt0078748");
+    }
+
+    @Test
+    void refreshAheadStopsWhenTheDailyReserveIsReached() throws IOException {
+        OmdbRateLimiter rateLimiter = mock(OmdbRateLimiter.class);
+        when(rateLimiter.getRemainingToday()).thenReturn(300L);
+
+        CacheWarmer cacheWarmer = cacheWarmer();
+        cacheWarmer.setRateLimiter(rateLimiter);
+        cacheWarmer.refreshAhead();
+
+        verify(movieService, never()).findMoviesWithIds(anyString(), any());
+    }
+
+    @Test
+    void popularSearchesAreOrderedByCount() {
+        popularSearches.record("Heat", null);
+        popularSearches.record("alien", "1979");
+        popularSearches.record("  Alien ", "1979");
+
+        assertThat(popularSearches.top(2)).containsExactly(
+                new PopularSearches.Search("alien", "1979"),
+                new PopularSearches.Search("Heat", null));
+    }
+}
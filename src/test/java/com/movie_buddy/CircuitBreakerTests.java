@@ -0,0 +1,77 @@
+package com.movie_buddy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.mock.env.MockEnvironment;
+
+public class CircuitBreakerTests {
+
+    private static final long FAST = Duration.ofMillis(10).toNanos();
+
+    private static final long SLOW = Duration.ofSeconds(3).toNanos();
+
+    private static CircuitBreaker circuitBreaker() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("omdb.client.breaker.window", "10")
+                .withProperty("omdb.client.breaker.minimum-calls", "4")
+                .withProperty("omdb.client.breaker.open-duration", "50ms")
+                .withProperty("omdb.client.breaker.trial-calls", "2");
+        environment.setConversionService(new ApplicationConversionService());
+        return new CircuitBreaker(environment);
+    }
+
+    // slow calls count as failures, and nothing opens the breaker before the
+    // minimum number of calls has been seen
+    @Test
+    void opensOnceHalfOfTheLatestCallsFailOrAreSlow() {
+        CircuitBreaker circuitBreaker = circuitBreaker();
+
+        circuitBreaker.onFailure();
+        circuitBreaker.onSuccess(SLOW);
+        circuitBreaker.onSuccess(FAST);
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+
+        circuitBreaker.onSuccess(FAST);
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(circuitBreaker.tryAcquire()).isFalse();
+        assertThat(circuitBreaker.getRetryAfter()).isPositive().isLessThanOrEqualTo(Duration.ofMillis(50));
+    }
+
+    // after the open duration only the trial calls go through, and the breaker
+    // closes once they all succeed
+    @Test
+    void closesAfterSuccessfulTrialCalls() throws InterruptedException {
+        CircuitBreaker circuitBreaker = circuitBreaker();
+        for (int i = 0; i < 4; i++)
+            circuitBreaker.onFailure();
+
+        Thread.sleep(60);
+        assertThat(circuitBreaker.tryAcquire()).isTrue();
+        assertThat(circuitBreaker.tryAcquire()).isTrue();
+        assertThat(circuitBreaker.tryAcquire()).isFalse();
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+
+        circuitBreaker.onSuccess(FAST);
+        circuitBreaker.onSuccess(FAST);
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(circuitBreaker.tryAcquire()).isTrue();
+    }
+
+    @Test
+    void aFailedTrialCallOpensItAgain() throws InterruptedException {
+        CircuitBreaker circuitBreaker = circuitBreaker();
+        for (int i = 0; i < 4; i++)
+            circuitBreaker.onFailure();
+
+        Thread.sleep(60);
+        assertThat(circuitBreaker.tryAcquire()).isTrue();
+        circuitBreaker.onFailure();
+
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(circuitBreaker.getTimesOpened()).isEqualTo(2);
+    }
+}
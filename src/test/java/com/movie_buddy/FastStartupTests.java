@@ -0,0 +1,49 @@
+package com.movie_buddy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.UseMainMethod;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+// the fast-startup profile, started through main so startup steps are recorded.
+// the test database stands in for postgres
+@SpringBootTest(useMainMethod = UseMainMethod.ALWAYS, properties = {
+        "spring.jpa.properties.jakarta.persistence.database-product-name=H2",
+        "spring.jpa.hibernate.ddl-auto=create-drop" })
+@ActiveProfiles("fast-startup")
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+public class FastStartupTests {
+
+    @Autowired
+    private ConfigurableApplicationContext applicationContext;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    // request handling beans wait for the first request; scheduled ones do not
+    @Test
+    void onlyScheduledBeansAreCreatedAtStartup() {
+        var beanFactory = applicationContext.getBeanFactory();
+
+        assertThat(beanFactory.getBeanDefinition("searchPageCaching").isLazyInit()).isTrue();
+        assertThat(beanFactory.containsSingleton("searchPageCaching")).isFalse();
+        assertThat(beanFactory.containsSingleton("movieStore")).isTrue();
+    }
+
+    @Test
+    void startupStepsArePublished() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/actuator/startup"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.timeline.events").isNotEmpty());
+    }
+}
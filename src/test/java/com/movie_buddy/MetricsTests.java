@@ -0,0 +1,81 @@
+package com.movie_buddy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import mockwebserver3.Dispatcher;
+import mockwebserver3.MockResponse;
+import mockwebserver3.MockWebServer;
+import mockwebserver3.RecordedRequest;
+
+// a search against a local stand-in for omdb, then a scrape of the prometheus endpoint
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+@AutoConfigureObservability
+public class MetricsTests {
+
+    private static final MockWebServer omdb = new MockWebServer();
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @DynamicPropertySource
+    static void omdbProperties(DynamicPropertyRegistry registry) throws IOException {
+        omdb.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                if (request.getRequestUrl().queryParameter("s") != null)
+                    return new MockResponse().setBody(
+                            "{\"Search\":[{\"imdbID\":\"tt0034583\"}],\"totalResults\":\"1\",\"Response\":\"True\"}");
+
+                return new MockResponse().setBody(
+                        "{\"Title\":\"Casablanca\",\"Year\":\"1942\",\"Poster\":\"N/A\",\"imdbRating\":\"8.5\",\"imdbID\":\"tt0034583\",\"Response\":\"True\"}");
+            }
+        });
+        omdb.start();
+        registry.add("omdb.api.url", () -> omdb.url("/").toString());
+    }
+
+    @AfterAll
+    static void stopOmdb() throws IOException {
+        omdb.shutdown();
+    }
+
+    @Test
+    void searchTimingsAndCacheStatsAreExposedForPrometheus() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/movies").param("title", "casablanca"))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+
+        String metrics = mockMvc.perform(MockMvcRequestBuilders.get("/actuator/prometheus"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertThat(metrics).contains("omdb_requests_seconds_bucket{");
+        assertThat(metrics).contains("type=\"search\"");
+        assertThat(metrics).contains("type=\"detail\"");
+        assertThat(metrics).contains("status=\"200\"");
+        assertThat(metrics).contains("omdb_decode_seconds_count{");
+        assertThat(metrics).contains("movie_search_seconds_count");
+        assertThat(metrics).contains("movie_details_seconds_count");
+        assertThat(metrics).contains("movie_view_render_seconds_bucket{");
+        assertThat(metrics).contains("cache_gets_total{cache=\"movie.details\"");
+        assertThat(metrics).contains("omdb_client_calls{");
+        assertThat(metrics).contains("omdb_rate_limit_remaining");
+        assertThat(metrics).contains("movie_store_pending_writes");
+    }
+}
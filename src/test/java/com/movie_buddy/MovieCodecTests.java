@@ -0,0 +1,58 @@
+package com.movie_buddy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.time.Instant;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.mock.env.MockEnvironment;
+
+public class MovieCodecTests {
+
+    private static final String[] FIELDS = { "imdbID", "title", "year", "poster", "runtime", "actors",
+            "imdbRating", "plot", "genre", "director", "fetchedAt" };
+
+    private static Movie casablanca() throws IOException {
+        Movie movie = OmdbResponseReader.readMovie("{\"Title\":\"Casablanca\",\"Year\":\"1942\",\"Runtime\":\"102 min\",\"Genre\":\"Drama, Romance, War\",\"Director\":\"Michael Curtiz\",\"Actors\":\"Humphrey Bogart, Ingrid Bergman\",\"Plot\":\"A cynical expatriate American café owner struggles to decide whether or not to help his former lover.\",\"Poster\":\"N/A\",\"imdbRating\":\"8.5\",\"imdbID\":\"tt0034583\",\"Response\":\"True\"}");
+        movie.setFetchedAt(Instant.ofEpochMilli(1_700_000_000_000L));
+        return movie;
+    }
+
+    @Test
+    void encodedMoviesDecodeToTheSameValues() throws IOException {
+        Movie movie = casablanca();
+
+        Movie decoded = MovieCodec.decode(MovieCodec.encode(movie));
+
+        assertThat(decoded).usingRecursiveComparison().comparingOnlyFields(FIELDS).isEqualTo(movie);
+        assertThat(decoded.getImdbPage()).isEqualTo("https://www.imdb.com/title/tt0034583");
+    }
+
+    // values that are not in omdb's usual shape are kept as text
+    @Test
+    void irregularAndMissingValuesSurviveEncoding() throws IOException {
+        Movie movie = OmdbResponseReader.readMovie("{\"Title\":\"Sherlock\",\"Year\":\"2010–2017\",\"Runtime\":\"N/A\",\"imdbRating\":\"10.0\",\"imdbID\":\"tt1475582\",\"Response\":\"True\"}");
+
+        Movie decoded = MovieCodec.decode(MovieCodec.encode(movie));
+
+        assertThat(decoded).usingRecursiveComparison().comparingOnlyFields(FIELDS).isEqualTo(movie);
+        assertThat(decoded.getPlot()).isNull();
+        assertThat(decoded.getFetchedAt()).isNull();
+    }
+
+    @Test
+    void detailsCacheServesMoviesFromEitherBinaryStorage() throws IOException {
+        for (String storage : new String[] { "bytes", "off-heap" }) {
+            MockEnvironment environment = new MockEnvironment().withProperty("movie.cache.details.storage", storage);
+            environment.setConversionService(new ApplicationConversionService());
+            MovieDetailsCache detailsCache = new MovieDetailsCache(environment);
+
+            detailsCache.put(casablanca());
+
+            assertThat(detailsCache.get("tt0034583").getPlot()).startsWith("A cynical expatriate American café");
+            assertThat(detailsCache.get("tt0000000")).isNull();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.movie_buddy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+// imports are written on their own connections, outside the test's transaction,
+// so the table is cleared after each test instead of rolled back. the chunks are
+// kept small so lines are cut across many of them
+@DataJpaTest
+@Import(MovieImporter.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = {
+        "movie.import.chunk-size=100",
+        "movie.import.batch-size=3",
+        "movie.import.parallelism=4" })
+public class MovieImporterTests {
+
+    private static final String TSV_HEADER = "tconst\ttitleType\tprimaryTitle\toriginalTitle\tisAdult\tstartYear\tendYear\truntimeMinutes\tgenres\n";
+
+    @Autowired
+    private MovieImporter movieImporter;
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    @TempDir
+    private Path directory;
+
+    @AfterEach
+    void clearMovies() {
+        movieRepository.deleteAll();
+    }
+
+    // every movie in an imdb dump is stored in omdb's form, as stale since it
+    // has no details to show; the header, other title types and missing values
+    // are skipped
+    @Test
+    void importsMoviesFromAnImdbDump() throws Exception {
+        String rows = IntStream.rangeClosed(1, 50)
+                .mapToObj(i -> String.format("tt%07d\tmovie\tMovie %d\tMovie %d\t0\t19%02d\t\\N\t9%d\tDrama,Romance\n",
+                        i, i, i, i, i % 10))
+                .collect(Collectors.joining());
+        Path file = directory.resolve("title.basics.tsv");
+        Files.writeString(file, TSV_HEADER + rows
+                + "tt0900000\ttvSeries\tA Series\tA Series\t0\t2001\t2005\t30\tComedy\n"
+                + "tt0900001\tmovie\tUnfinished\tUnfinished\t0\t\\N\t\\N\t\\N\t\\N");
+
+        MovieImporter.Result result = movieImporter.importFile(file);
+
+        assertThat(result.imported()).isEqualTo(51);
+        assertThat(result.skipped()).isEqualTo(2);
+        assertThat(movieRepository.count()).isEqualTo(51);
+
+        Movie movie = movieRepository.findById("tt0000042").orElseThrow();
+        assertThat(movie.getTitle()).isEqualTo("Movie 42");
+        assertThat(movie.getYear()).isEqualTo("1942");
+        assertThat(movie.getRuntime()).isEqualTo("92 min");
+        assertThat(movie.getGenre()).isEqualTo("Drama, Romance");
+        assertThat(movie.getFetchedAt()).isEqualTo(Instant.EPOCH);
+
+        Movie unfinished = movieRepository.findById("tt0900001").orElseThrow();
+        assertThat(unfinished.getYear()).isNull();
+        assertThat(unfinished.getGenre()).isNull();
+        assertThat(movieRepository.existsById("tt0900000")).isFalse();
+    }
+
+    // importing a title again updates its row and keeps the details the new
+    // file does not have, along with when it was last fetched
+    @Test
+    void reimportingKeepsStoredDetails() throws Exception {
+        Path responses = directory.resolve("movies.ndjson");
+        Files.writeString(responses,
+                "{\"Title\":\"Casablanca\",\"Year\":\"1942\",\"Runtime\":\"102 min\",\"Plot\":\"A cynical expatriate American cafe owner struggles.\",\"imdbRating\":\"8.5\",\"imdbID\":\"tt0034583\",\"Response\":\"True\"}\r\n"
+                        + "not json\n"
+                        + "\n"
+                        + "{\"Response\":\"False\",\"Error\":\"Movie not found!\"}\n");
+
+        MovieImporter.Result result = movieImporter.importFile(responses);
+        assertThat(result.imported()).isEqualTo(1);
+        assertThat(result.skipped()).isEqualTo(2);
+        Instant fetchedAt = movieRepository.findById("tt0034583").orElseThrow().getFetchedAt();
+        assertThat(fetchedAt).isAfter(Instant.EPOCH);
+
+        Path dump = directory.resolve("title.basics.tsv");
+        Files.writeString(dump, TSV_HEADER
+                + "tt0034583\tmovie\tCasablanca (1942)\tCasablanca\t0\t1942\t\\N\t102\tDrama,Romance,War\n");
+        movieImporter.importFile(dump);
+
+        Movie movie = movieRepository.findById("tt0034583").orElseThrow();
+        assertThat(movie.getTitle()).isEqualTo("Casablanca (1942)");
+        assertThat(movie.getGenre()).isEqualTo("Drama, Romance, War");
+        assertThat(movie.getPlot()).isEqualTo("A cynical expatriate American cafe owner struggles.");
+        assertThat(movie.getImdbRating()).isEqualTo("8.5");
+        assertThat(movie.getFetchedAt()).isEqualTo(fetchedAt);
+    }
+}
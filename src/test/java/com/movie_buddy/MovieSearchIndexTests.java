@@ -0,0 +1,45 @@
+package com.movie_buddy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+
+public class MovieSearchIndexTests {
+
+    private final MovieSearchIndex searchIndex = new MovieSearchIndex(mock(MovieStore.class));
+
+    private static Movie movie(String imdbID, String title, String year, String actors) throws IOException {
+        return OmdbResponseReader.readMovie("{\"Title\":\"" + title + "\",\"Year\":\"" + year + "\",\"Actors\":\""
+                + actors + "\",\"Genre\":\"Drama, Romance\",\"imdbID\":\"" + imdbID + "\",\"Response\":\"True\"}");
+    }
+
+    // every word of the query has to match, regardless of case and accents
+    @Test
+    void searchMatchesEveryWordOfTheQuery() throws IOException {
+        searchIndex.add(movie("tt0211915", "Amélie", "2001", "Audrey Tautou"));
+        searchIndex.add(movie("tt0034583", "Casablanca", "1942", "Humphrey Bogart, Ingrid Bergman"));
+        searchIndex.add(movie("tt0043265", "The African Queen", "1951", "Humphrey Bogart, Katharine Hepburn"));
+
+        assertThat(searchIndex.search("AMELIE", null, MovieSearchIndex.Field.TITLE)).containsExactly("tt0211915");
+        assertThat(searchIndex.search("humphrey bogart", null, MovieSearchIndex.Field.ACTORS))
+                .containsExactly("tt0034583", "tt0043265");
+        assertThat(searchIndex.search("bogart hepburn", null, MovieSearchIndex.Field.ACTORS))
+                .containsExactly("tt0043265");
+        assertThat(searchIndex.search("bogart", "1951", MovieSearchIndex.Field.ANY)).containsExactly("tt0043265");
+        assertThat(searchIndex.search("romance", null, MovieSearchIndex.Field.GENRE)).hasSize(3);
+    }
+
+    // adding a movie again replaces what was indexed for it
+    @Test
+    void addingAMovieAgainReplacesItsEntry() throws IOException {
+        searchIndex.add(movie("tt0034583", "Casablanca", "1942", "Humphrey Bogart"));
+        searchIndex.add(movie("tt0034583", "Casablanca", "1942", "Ingrid Bergman"));
+
+        assertThat(searchIndex.search("bogart", null, MovieSearchIndex.Field.ACTORS)).isEmpty();
+        assertThat(searchIndex.search("bergman", null, MovieSearchIndex.Field.ACTORS)).containsExactly("tt0034583");
+        assertThat(searchIndex.size()).isEqualTo(1);
+    }
+}
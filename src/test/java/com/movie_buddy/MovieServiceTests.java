@@ -2,24 +2,45 @@ package com.movie_buddy;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
 import org.springframework.core.env.Environment;
+import org.springframework.mock.env.MockEnvironment;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.HttpUrl;
 
 @SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
 @AutoConfigureMockMvc
+@AutoConfigureTestDatabase
 public class MovieServiceTests {
 
     @Autowired
@@ -109,4 +130,351 @@ public class MovieServiceTests {
 
         assertThat(result).isNotEmpty();
     }
+
+    // a second lookup of the same imdbID should be served from the details cache
+    // without another request to omdb
+    @Test
+    void getMoviesWithDetailsServesRepeatLookupsFromCache()
+            throws IOException, InterruptedException, ExecutionException {
+        MovieService movieService = new MovieService(environment);
+        RequestHandler mockRequestHandler = mock(RequestHandler.class);
+
+        String detailedResponseBody = "{\"Title\":\"Casablanca\",\"Year\":\"1942\",\"Runtime\":\"102 min\",\"Actors\":\"Humphrey Bogart, Ingrid Bergman, Paul Henreid\",\"imdbRating\":\"8.5\",\"imdbID\":\"tt0034583\",\"Response\":\"True\"}";
+        when(mockRequestHandler.getDetailedResponse(anyString()))
+                .thenReturn(CompletableFuture.completedFuture(detailedResponseBody));
+
+        movieService.setRequestHandler(mockRequestHandler);
+
+        List<Movie> firstResult = movieService.getMoviesWithDetails(List.of("tt0034583"));
+        List<Movie> secondResult = movieService.getMoviesWithDetails(List.of("tt0034583"));
+
+        verify(mockRequestHandler, times(1)).getDetailedResponse(anyString());
+        assertThat(firstResult).hasSize(1);
+        assertThat(secondResult).containsExactlyElementsOf(firstResult);
+    }
+
+    // searches differing only in case and whitespace share a cache entry,
+    // and "Movie not found!" answers are cached too
+    @Test
+    void getMoviesWithIdsServesRepeatSearchesFromCache() throws IOException {
+        MovieService movieService = new MovieService(environment);
+        RequestHandler mockRequestHandler = mock(RequestHandler.class);
+        movieService.setRequestHandler(mockRequestHandler);
+
+        when(mockRequestHandler.getInitialResponse(anyString()))
+                .thenReturn("{\"Response\":\"False\",\"Error\":\"Movie not found!\"}");
+
+        assertThat(movieService.getMoviesWithIds("No Such  Movie", "1999")).isNull();
+        assertThat(movieService.getMoviesWithIds("  no such movie ", "1999")).isNull();
+
+        verify(mockRequestHandler, times(1)).getInitialResponse(anyString());
+    }
+
+    // omdb error bodies are detected while decoding and never become movies
+    @Test
+    void getMoviesWithDetailsDropsErrorResponses()
+            throws IOException, InterruptedException, ExecutionException {
+        MovieService movieService = new MovieService(environment);
+        RequestHandler mockRequestHandler = mock(RequestHandler.class);
+
+        when(mockRequestHandler.getDetailedResponse(anyString()))
+                .thenReturn(CompletableFuture.completedFuture("{\"Response\":\"False\",\"Error\":\"Incorrect IMDb ID.\"}"));
+
+        movieService.setRequestHandler(mockRequestHandler);
+
+        assertThat(movieService.getMoviesWithDetails(List.of("tt9999999"))).isEmpty();
+    }
+
+    // when the thread waiting on a search is interrupted, the detail requests
+    // still in flight for that search are cancelled rather than left running
+    @Test
+    void getMoviesWithDetailsCancelsPendingRequestsWhenInterrupted() {
+        MovieService movieService = new MovieService(environment);
+        RequestHandler mockRequestHandler = mock(RequestHandler.class);
+
+        CompletableFuture<String> pendingResponse = new CompletableFuture<>();
+        when(mockRequestHandler.getDetailedResponse(anyString())).thenReturn(pendingResponse);
+
+        movieService.setRequestHandler(mockRequestHandler);
+
+        Thread.currentThread().interrupt();
+        assertThrows(InterruptedException.class, () -> {
+            movieService.getMoviesWithDetails(List.of("tt0034583"));
+        });
+
+        assertThat(pendingResponse).isCancelled();
+    }
+
+    // a detail call still pending when the search budget runs out is cancelled and
+    // reported as missing, while the movies that did arrive are returned
+    @Test
+    void getMovieResultsReturnsPartialResultsWhenTheBudgetRunsOut() throws InterruptedException {
+        MockEnvironment budgetEnvironment = new MockEnvironment().withProperty("movie.search.budget", "200ms");
+        budgetEnvironment.setConversionService(new ApplicationConversionService());
+
+        MovieService movieService = new MovieService(budgetEnvironment);
+        RequestHandler mockRequestHandler = mock(RequestHandler.class);
+
+        String detailedResponseBody = "{\"Title\":\"Casablanca\",\"Year\":\"1942\",\"imdbID\":\"tt0034583\",\"Response\":\"True\"}";
+        CompletableFuture<String> hungResponse = new CompletableFuture<>();
+        when(mockRequestHandler.getDetailedResponse(anyString()))
+                .thenReturn(CompletableFuture.completedFuture(detailedResponseBody), hungResponse);
+
+        movieService.setRequestHandler(mockRequestHandler);
+
+        MovieResults results = movieService.getMovieResults(List.of("tt0034583", "tt0033467"));
+
+        assertThat(results.movies()).extracting(Movie::getImdbID).containsExactly("tt0034583");
+        assertThat(results.missingMovieIDs()).containsExactly("tt0033467");
+        assertThat(hungResponse).isCancelled();
+    }
+
+    // with hedging enabled, a detail call that has not answered after the hedge
+    // delay is duplicated and the first response wins
+    @Test
+    void getMovieResultsHedgesSlowDetailCalls() throws InterruptedException {
+        MockEnvironment hedgingEnvironment = new MockEnvironment()
+                .withProperty("movie.search.hedge.enabled", "true")
+                .withProperty("movie.search.hedge.min-delay", "20ms");
+        hedgingEnvironment.setConversionService(new ApplicationConversionService());
+
+        MovieService movieService = new MovieService(hedgingEnvironment);
+        RequestHandler mockRequestHandler = mock(RequestHandler.class);
+
+        String detailedResponseBody = "{\"Title\":\"Casablanca\",\"Year\":\"1942\",\"imdbID\":\"tt0034583\",\"Response\":\"True\"}";
+        CompletableFuture<String> slowResponse = new CompletableFuture<>();
+        when(mockRequestHandler.getDetailedResponse(anyString()))
+                .thenReturn(slowResponse, CompletableFuture.completedFuture(detailedResponseBody));
+
+        movieService.setRequestHandler(mockRequestHandler);
+
+        MovieResults results = movieService.getMovieResults(List.of("tt0034583"));
+
+        verify(mockRequestHandler, times(2)).getDetailedResponse(anyString());
+        assertThat(results.movies()).hasSize(1);
+        assertThat(results.isPartial()).isFalse();
+        assertThat(slowResponse).isCancelled();
+    }
+
+    // a first response arriving while the duplicate is being sent still cancels
+    // the duplicate, so it does not keep holding omdb permits
+    @Test
+    void aDuplicateSentAsTheFirstResponseArrivesIsCancelled() throws InterruptedException {
+        MockEnvironment hedgingEnvironment = new MockEnvironment()
+                .withProperty("movie.search.hedge.enabled", "true")
+                .withProperty("movie.search.hedge.min-delay", "20ms");
+        hedgingEnvironment.setConversionService(new ApplicationConversionService());
+
+        MovieService movieService = new MovieService(hedgingEnvironment);
+        RequestHandler mockRequestHandler = mock(RequestHandler.class);
+
+        String detailedResponseBody = "{\"Title\":\"Casablanca\",\"Year\":\"1942\",\"imdbID\":\"tt0034583\",\"Response\":\"True\"}";
+        CompletableFuture<String> firstResponse = new CompletableFuture<>();
+        CompletableFuture<String> duplicateResponse = new CompletableFuture<>();
+        when(mockRequestHandler.getDetailedResponse(anyString()))
+                .thenReturn(firstResponse)
+                .thenAnswer(invocation -> {
+                    firstResponse.complete(detailedResponseBody);
+                    return duplicateResponse;
+                });
+
+        movieService.setRequestHandler(mockRequestHandler);
+
+        MovieResults results = movieService.getMovieResults(List.of("tt0034583"));
+
+        assertThat(results.movies()).hasSize(1);
+        assertThrows(CancellationException.class, () -> duplicateResponse.get(1, TimeUnit.SECONDS));
+    }
+
+    // once the request budget is spent, a movie already in the movies table is
+    // served from there even though it is past its freshness window
+    @Test
+    void getMoviesWithDetailsFallsBackToStoredMoviesWhenRateLimited()
+            throws IOException, InterruptedException, ExecutionException {
+        MovieService movieService = new MovieService(environment);
+        RequestHandler mockRequestHandler = mock(RequestHandler.class);
+        MovieStore mockMovieStore = mock(MovieStore.class);
+
+        Movie storedMovie = OmdbResponseReader.readMovie("{\"Title\":\"Casablanca\",\"Year\":\"1942\",\"imdbID\":\"tt0034583\",\"Response\":\"True\"}");
+        when(mockMovieStore.findFresh(anyList())).thenReturn(Map.of());
+        when(mockMovieStore.findStored("tt0034583")).thenReturn(storedMovie);
+        when(mockRequestHandler.getDetailedResponse(anyString()))
+                .thenReturn(CompletableFuture.failedFuture(new RequestLimitExceededException()));
+
+        movieService.setRequestHandler(mockRequestHandler);
+        movieService.setMovieStore(mockMovieStore);
+
+        assertThat(movieService.getMoviesWithDetails(List.of("tt0034583"))).containsExactly(storedMovie);
+    }
+
+    // a lookup for a movie already being fetched joins that request, and one
+    // search giving up on it does not cancel it for the other
+    @Test
+    void concurrentLookupsOfTheSameMovieShareOneRequest() throws Exception {
+        MovieService movieService = new MovieService(environment);
+        RequestHandler mockRequestHandler = mock(RequestHandler.class);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+        CompletableFuture<String> pendingResponse = new CompletableFuture<>();
+        when(mockRequestHandler.getDetailedResponse(anyString())).thenReturn(pendingResponse);
+
+        movieService.setRequestHandler(mockRequestHandler);
+        movieService.setMeterRegistry(meterRegistry);
+
+        CompletableFuture<Movie> abandonedLookup = movieService.fetchMovieWithDetails("tt0034583");
+        CompletableFuture<Movie> sharedLookup = movieService.fetchMovieWithDetails("tt0034583");
+        abandonedLookup.cancel(true);
+        pendingResponse.complete("{\"Title\":\"Casablanca\",\"Year\":\"1942\",\"imdbID\":\"tt0034583\",\"Response\":\"True\"}");
+
+        verify(mockRequestHandler, times(1)).getDetailedResponse(anyString());
+        assertThat(sharedLookup.get(1, TimeUnit.SECONDS).getTitle()).isEqualTo("Casablanca");
+        assertThat(meterRegistry.counter("movie.requests.coalesced", "type", "detail").count()).isEqualTo(1);
+    }
+
+    // searches for the same title made while one is in flight wait for its answer
+    // instead of calling omdb again
+    @Test
+    void concurrentSearchesForTheSameTitleShareOneRequest() throws Exception {
+        MovieService movieService = new MovieService(environment);
+        RequestHandler mockRequestHandler = mock(RequestHandler.class);
+        CountDownLatch searchStarted = new CountDownLatch(1);
+        CountDownLatch releaseSearch = new CountDownLatch(1);
+
+        when(mockRequestHandler.getInitialResponse(anyString())).thenAnswer(invocation -> {
+            searchStarted.countDown();
+            assertThat(releaseSearch.await(5, TimeUnit.SECONDS)).isTrue();
+            return "{\"Search\":[{\"imdbID\":\"tt0034583\"}],\"totalResults\":\"1\",\"Response\":\"True\"}";
+        });
+
+        movieService.setRequestHandler(mockRequestHandler);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<List<String>> first = executor.submit(() -> movieService.getMoviesWithIds("Casablanca", null));
+            // fails rather than hangs when the search throws before it starts
+            assertThat(searchStarted.await(5, TimeUnit.SECONDS)).isTrue();
+            Future<List<String>> second = executor.submit(() -> movieService.getMoviesWithIds("casablanca ", null));
+
+            // give the second search time to join before the first one answers
+            Thread.sleep(100);
+            releaseSearch.countDown();
+
+            assertThat(first.get(1, TimeUnit.SECONDS)).containsExactly("tt0034583");
+            assertThat(second.get(1, TimeUnit.SECONDS)).containsExactly("tt0034583");
+            verify(mockRequestHandler, times(1)).getInitialResponse(anyString());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // titles are encoded into the search url, so their &, # and + reach omdb
+    // as part of the title
+    @Test
+    void searchTitlesAreEncodedIntoTheRequestURL() throws IOException {
+        MovieService movieService = new MovieService(environment);
+        RequestHandler mockRequestHandler = mock(RequestHandler.class);
+        ArgumentCaptor<String> requestURL = ArgumentCaptor.forClass(String.class);
+        when(mockRequestHandler.getInitialResponse(requestURL.capture()))
+                .thenReturn("{\"Response\":\"False\",\"Error\":\"Movie not found!\"}");
+        movieService.setRequestHandler(mockRequestHandler);
+
+        movieService.getMoviesWithIds("Fast & Furious #7 + Hobbs", "2015");
+
+        HttpUrl url = HttpUrl.get(requestURL.getValue());
+        assertThat(url.queryParameter("s")).isEqualTo("Fast & Furious #7 + Hobbs");
+        assertThat(url.queryParameter("y")).isEqualTo("2015");
+        assertThat(url.queryParameterNames()).containsExactlyInAnyOrder("apikey", "s", "type", "y");
+    }
+
+    // with movie.search.max-pages set, the pages after the first are fetched at
+    // once, as many as totalResults calls for, and their imdbIDs merged in order
+    @Test
+    void getMoviesWithIdsFetchesFurtherPagesAndDropsDuplicates() throws IOException {
+        MockEnvironment pagesEnvironment = new MockEnvironment().withProperty("movie.search.max-pages", "5");
+        MovieService movieService = new MovieService(pagesEnvironment);
+        RequestHandler mockRequestHandler = mock(RequestHandler.class);
+
+        when(mockRequestHandler.getInitialResponse(anyString()))
+                .thenReturn("{\"Search\":[{\"imdbID\":\"tt0000001\"},{\"imdbID\":\"tt0000002\"}],\"totalResults\":\"25\",\"Response\":\"True\"}");
+        when(mockRequestHandler.getInitialResponseAsync(contains("&page=2")))
+                .thenReturn(CompletableFuture.completedFuture("{\"Search\":[{\"imdbID\":\"tt0000002\"},{\"imdbID\":\"tt0000003\"}],\"totalResults\":\"25\",\"Response\":\"True\"}"));
+        when(mockRequestHandler.getInitialResponseAsync(contains("&page=3")))
+                .thenReturn(CompletableFuture.completedFuture("{\"Search\":[{\"imdbID\":\"tt0000004\"}],\"totalResults\":\"25\",\"Response\":\"True\"}"));
+
+        movieService.setRequestHandler(mockRequestHandler);
+
+        assertThat(movieService.getMoviesWithIds("any title", null))
+                .containsExactly("tt0000001", "tt0000002", "tt0000003", "tt0000004");
+        verify(mockRequestHandler, times(2)).getInitialResponseAsync(anyString());
+    }
+
+    // titles the local index has enough recently fetched matches for are
+    // answered without omdb; stale matches, such as imported ones, do not count
+    @Test
+    void getMoviesWithIdsAnswersFromTheIndexWhenItHasEnoughMatches() throws IOException {
+        MockEnvironment indexEnvironment = new MockEnvironment().withProperty("movie.index.min-hits", "1");
+        indexEnvironment.setConversionService(new ApplicationConversionService());
+        MovieService movieService = new MovieService(indexEnvironment);
+        RequestHandler mockRequestHandler = mock(RequestHandler.class);
+        MovieSearchIndex searchIndex = new MovieSearchIndex(mock(MovieStore.class));
+
+        Movie casablanca = OmdbResponseReader.readMovie("{\"Title\":\"Casablanca\",\"Year\":\"1942\",\"imdbID\":\"tt0034583\",\"Response\":\"True\"}");
+        casablanca.setFetchedAt(Instant.now());
+        searchIndex.add(casablanca);
+        Movie alien = OmdbResponseReader.readMovie("{\"Title\":\"Alien\",\"Year\":\"1979\",\"imdbID\":\"tt0078748\",\"Response\":\"True\"}");
+        alien.setFetchedAt(Instant.EPOCH);
+        searchIndex.add(alien);
+        when(mockRequestHandler.getInitialResponse(anyString())).thenReturn(
+                "{\"Search\":[{\"Title\":\"Alien\",\"Year\":\"1979\",\"imdbID\":\"tt0078748\",\"Type\":\"movie\"}],\"totalResults\":\"1\",\"Response\":\"True\"}");
+
+        movieService.setRequestHandler(mockRequestHandler);
+        movieService.setSearchIndex(searchIndex);
+
+        assertThat(movieService.getMoviesWithIds("casablanca", "1942")).containsExactly("tt0034583");
+        verify(mockRequestHandler, times(0)).getInitialResponse(anyString());
+
+        assertThat(movieService.getMoviesWithIds("alien", null)).containsExactly("tt0078748");
+        verify(mockRequestHandler, times(1)).getInitialResponse(anyString());
+    }
+
+    // while omdb calls are refused, a title the index has too few matches for to
+    // normally stand in for omdb is answered from it anyway
+    @Test
+    void getMoviesWithIdsFallsBackToTheIndexWhileOmdbIsUnavailable() throws IOException {
+        MovieService movieService = new MovieService(environment);
+        RequestHandler mockRequestHandler = mock(RequestHandler.class);
+        MovieSearchIndex searchIndex = new MovieSearchIndex(mock(MovieStore.class));
+
+        searchIndex.add(OmdbResponseReader.readMovie("{\"Title\":\"Casablanca\",\"Year\":\"1942\",\"imdbID\":\"tt0034583\",\"Response\":\"True\"}"));
+        when(mockRequestHandler.getInitialResponse(anyString()))
+                .thenThrow(new UpstreamUnavailableException("omdb is failing", Duration.ofSeconds(30)));
+
+        movieService.setRequestHandler(mockRequestHandler);
+        movieService.setSearchIndex(searchIndex);
+
+        assertThat(movieService.getMoviesWithIds("casablanca", null)).containsExactly("tt0034583");
+        assertThrows(UpstreamUnavailableException.class, () -> movieService.getMoviesWithIds("alien", null));
+    }
+
+    // a search refused because the day's budget is spent is answered from the
+    // index too, whether made blocking or not
+    @Test
+    void getMoviesWithIdsFallsBackToTheIndexOnceRateLimited() throws Exception {
+        MovieService movieService = new MovieService(environment);
+        RequestHandler mockRequestHandler = mock(RequestHandler.class);
+        MovieSearchIndex searchIndex = new MovieSearchIndex(mock(MovieStore.class));
+
+        searchIndex.add(OmdbResponseReader.readMovie("{\"Title\":\"Casablanca\",\"Year\":\"1942\",\"imdbID\":\"tt0034583\",\"Response\":\"True\"}"));
+        when(mockRequestHandler.getInitialResponse(anyString())).thenThrow(new RequestLimitExceededException());
+        when(mockRequestHandler.getInitialResponseAsync(anyString()))
+                .thenReturn(CompletableFuture.failedFuture(new RequestLimitExceededException()));
+
+        movieService.setRequestHandler(mockRequestHandler);
+        movieService.setSearchIndex(searchIndex);
+
+        assertThat(movieService.getMoviesWithIds("casablanca", null)).containsExactly("tt0034583");
+        assertThat(movieService.getMoviesWithIdsAsync("casablanca", null).get(5, TimeUnit.SECONDS))
+                .containsExactly("tt0034583");
+        assertThrows(RequestLimitExceededException.class, () -> movieService.getMoviesWithIds("alien", null));
+    }
 }
@@ -0,0 +1,83 @@
+package com.movie_buddy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+// runs against an embedded database standing in for postgres
+@DataJpaTest
+@Import(MovieStore.class)
+public class MovieStoreTests {
+
+    @Autowired
+    private MovieStore movieStore;
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    private Movie sampleMovie() throws Exception {
+        String detailedResponseBody = "{\"Title\":\"Casablanca\",\"Year\":\"1942\",\"Runtime\":\"102 min\",\"Actors\":\"Humphrey Bogart, Ingrid Bergman, Paul Henreid\",\"Plot\":\"A cynical expatriate American cafe owner struggles to decide whether or not to help his former lover and her fugitive husband escape the Nazis in French Morocco.\",\"Ratings\":[{\"Source\":\"Internet Movie Database\",\"Value\":\"8.5/10\"}],\"imdbRating\":\"8.5\",\"imdbID\":\"tt0034583\",\"Response\":\"True\"}";
+        return new ObjectMapper().readValue(detailedResponseBody, Movie.class);
+    }
+
+    // queued writes reach the movies table on flush and are read back by imdbID
+    @Test
+    void flushedMoviesAreReadBackByImdbID() throws Exception {
+        movieStore.save(sampleMovie());
+        assertThat(movieStore.pendingWriteCount()).isEqualTo(1);
+
+        movieStore.flush();
+
+        Map<String, Movie> storedMovies = movieStore.findFresh(List.of("tt0034583", "tt0000000"));
+        assertThat(movieStore.pendingWriteCount()).isZero();
+        assertThat(storedMovies).containsOnlyKeys("tt0034583");
+        assertThat(storedMovies.get("tt0034583").getTitle()).isEqualTo("Casablanca");
+    }
+
+    // saving a known imdbID again updates the existing row
+    @Test
+    void savingAKnownMovieUpdatesItsRow() throws Exception {
+        movieStore.save(sampleMovie());
+        movieStore.flush();
+        movieStore.save(sampleMovie());
+        movieStore.flush();
+
+        assertThat(movieRepository.count()).isEqualTo(1);
+    }
+
+    // rows older than movie.store.max-age are not served
+    @Test
+    void staleMoviesAreNotServed() throws Exception {
+        Movie staleMovie = sampleMovie();
+        staleMovie.setFetchedAt(Instant.now().minus(Duration.ofDays(30)));
+        movieStore.save(staleMovie);
+        movieStore.flush();
+
+        assertThat(movieStore.findFresh(List.of("tt0034583"))).isEmpty();
+    }
+
+    // every stored movie is visited, stale or not
+    @Test
+    void forEachStoredVisitsEveryStoredMovie() throws Exception {
+        Movie staleMovie = sampleMovie();
+        staleMovie.setFetchedAt(Instant.now().minus(Duration.ofDays(30)));
+        movieStore.save(staleMovie);
+        movieStore.flush();
+
+        List<String> visited = new ArrayList<>();
+        movieStore.forEachStored(movie -> visited.add(movie.getImdbID()));
+
+        assertThat(visited).containsExactly("tt0034583");
+    }
+}
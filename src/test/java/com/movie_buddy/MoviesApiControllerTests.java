@@ -0,0 +1,115 @@
+package com.movie_buddy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import mockwebserver3.Dispatcher;
+import mockwebserver3.MockResponse;
+import mockwebserver3.MockWebServer;
+import mockwebserver3.RecordedRequest;
+
+// the json api on the servlet stack, against a local stand-in for omdb
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
+@AutoConfigureTestDatabase
+public class MoviesApiControllerTests {
+
+    private static final MockWebServer omdb = new MockWebServer();
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @DynamicPropertySource
+    static void omdbProperties(DynamicPropertyRegistry registry) throws IOException {
+        omdb.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                String title = request.getRequestUrl().queryParameter("s");
+                if (title != null)
+                    return new MockResponse().setBody(
+                            "{\"Search\":[{\"imdbID\":\"tt0034583\"}],\"totalResults\":\"1\",\"Response\":\"True\"}");
+                if ("tt0000000".equals(request.getRequestUrl().queryParameter("i")))
+                    return new MockResponse().setBody("{\"Response\":\"False\",\"Error\":\"Incorrect IMDb ID.\"}");
+
+                return new MockResponse().setBody(
+                        "{\"Title\":\"Casablanca\",\"Year\":\"1942\",\"Poster\":\"N/A\",\"imdbRating\":\"8.5\",\"imdbID\":\"tt0034583\",\"Response\":\"True\"}");
+            }
+        });
+        omdb.start();
+        registry.add("omdb.api.url", () -> omdb.url("/").toString());
+        registry.add("movie.api.max-batch-size", () -> "3");
+    }
+
+    @AfterAll
+    static void stopOmdb() throws IOException {
+        omdb.shutdown();
+    }
+
+    @Test
+    void searchReturnsMoviesInOmdbsShape() {
+        webTestClient.get().uri("/api/movies/search?title=casablanca")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.totalResults").isEqualTo(1)
+                .jsonPath("$.movies[0].Title").isEqualTo("Casablanca")
+                .jsonPath("$.movies[0].imdbID").isEqualTo("tt0034583")
+                .jsonPath("$.missingMovieIDs").isEmpty();
+    }
+
+    // duplicates are looked up once; imdbIDs omdb has no details for are left out
+    @Test
+    void batchDetailsResolvesEachImdbIDOnce() {
+        webTestClient.post().uri("/api/movies/details")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(List.of("tt0034583", "tt0034583", "tt0000000"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.movies.length()").isEqualTo(1)
+                .jsonPath("$.movies[0].Title").isEqualTo("Casablanca")
+                .jsonPath("$.missingMovieIDs").isEmpty();
+    }
+
+    @Test
+    void batchDetailsStreamsOneLinePerImdbID() {
+        List<String> lines = webTestClient.post().uri("/api/movies/details")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(List.of("tt0034583", "tt0000000"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBody(String.class)
+                .returnResult().getResponseBody()
+                .lines().toList();
+
+        assertThat(lines).hasSize(2);
+        assertThat(lines).anySatisfy(line -> assertThat(line).contains("\"Title\":\"Casablanca\""));
+        assertThat(lines).anySatisfy(line -> assertThat(line).contains("\"imdbID\":\"tt0000000\",\"movie\":null"));
+    }
+
+    @Test
+    void oversizedBatchesAreRejectedAsProblems() {
+        webTestClient.post().uri("/api/movies/details")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Collections.nCopies(4, "tt0034583"))
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.detail").isEqualTo("At most 3 imdbIDs can be looked up at once");
+    }
+}
@@ -0,0 +1,94 @@
+package com.movie_buddy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+@SpringBootTest(properties = "movie.search.budget=1s")
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+public class MoviesStreamTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private MovieService movieService;
+
+    // each movie is sent as a rendered card as soon as its details arrive,
+    // followed by a "done" event with the number of movies sent
+    @Test
+    void streamEndpointSendsRenderedMovieCardsThenDone() throws Exception {
+        String detailedResponseBody = "{\"Title\":\"Casablanca\",\"Year\":\"1942\",\"Runtime\":\"102 min\",\"Actors\":\"Humphrey Bogart, Ingrid Bergman, Paul Henreid\",\"Poster\":\"N/A\",\"imdbRating\":\"8.5\",\"imdbID\":\"tt0034583\",\"Response\":\"True\"}";
+        Movie movie = OmdbResponseReader.readMovie(detailedResponseBody);
+
+        when(movieService.getMoviesWithIds(anyString(), isNull(), eq(MovieSearchIndex.Field.TITLE))).thenReturn(List.of("tt0034583"));
+        when(movieService.getMovieFutures(anyList())).thenReturn(List.of(CompletableFuture.completedFuture(movie)));
+
+        MvcResult mvcResult = mockMvc.perform(MockMvcRequestBuilders.get("/movies/stream").param("title", "casablanca"))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+        mvcResult.getAsyncResult(5_000);
+
+        String events = mvcResult.getResponse().getContentAsString();
+        assertThat(events).contains("event:movie");
+        assertThat(events).contains("Casablanca");
+        assertThat(events).contains("event:done\ndata:1");
+    }
+
+    // searches that find nothing still finish with a "done" event
+    @Test
+    void streamEndpointSendsDoneWhenNothingIsFound() throws Exception {
+        when(movieService.getMoviesWithIds(anyString(), isNull(), eq(MovieSearchIndex.Field.TITLE))).thenReturn(null);
+
+        MvcResult mvcResult = mockMvc.perform(MockMvcRequestBuilders.get("/movies/stream").param("title", "zzzz"))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+        mvcResult.getAsyncResult(5_000);
+
+        assertThat(mvcResult.getResponse().getContentAsString()).contains("event:done\ndata:0");
+    }
+
+    // only the requested page's movies are looked up, after links to the other
+    // pages are sent, and movies still pending once the search budget runs out
+    // are cancelled and the stream finished
+    @Test
+    void streamEndpointSendsOnePageWithinTheSearchBudget() throws Exception {
+        Movie movie = OmdbResponseReader.readMovie("{\"Title\":\"Casablanca\",\"imdbID\":\"tt0000011\",\"Response\":\"True\"}");
+        List<String> movieIDs = IntStream.rangeClosed(1, 25).mapToObj(i -> String.format("tt%07d", i)).toList();
+        CompletableFuture<Movie> pending = new CompletableFuture<>();
+
+        when(movieService.getMoviesWithIds(anyString(), isNull(), eq(MovieSearchIndex.Field.TITLE))).thenReturn(movieIDs);
+        when(movieService.getMovieFutures(movieIDs.subList(10, 20)))
+                .thenReturn(List.of(CompletableFuture.completedFuture(movie), pending));
+
+        MvcResult mvcResult = mockMvc.perform(MockMvcRequestBuilders.get("/movies/stream")
+                .param("title", "casablanca").param("page", "2"))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+        mvcResult.getAsyncResult(5_000);
+
+        String events = mvcResult.getResponse().getContentAsString();
+        assertThat(events).contains("event:pages\ndata:{\"page\":2,\"totalPages\":3,\"previousURL\":\"/movies?title=casablanca\",\"nextURL\":\"/movies?title=casablanca&page=3\"}");
+        assertThat(events).contains("event:done\ndata:1");
+        assertThat(pending).isCancelled();
+    }
+}
@@ -0,0 +1,68 @@
+package com.movie_buddy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.mock.env.MockEnvironment;
+
+import com.movie_buddy.OmdbRateLimiter.Priority;
+
+public class OmdbRateLimiterTests {
+
+    private OmdbRateLimiter rateLimiter(String requestsPerSecond, String dailyLimit, String searchReserve) {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("omdb.rate-limit.requests-per-second", requestsPerSecond)
+                .withProperty("omdb.rate-limit.daily-limit", dailyLimit)
+                .withProperty("omdb.rate-limit.search-reserve", searchReserve)
+                .withProperty("omdb.rate-limit.max-wait", "50ms");
+        environment.setConversionService(new ApplicationConversionService());
+
+        return new OmdbRateLimiter(environment);
+    }
+
+    // the per second bucket allows a burst of its size, then refuses until it refills
+    @Test
+    void burstsBeyondTheBucketSizeAreRefused() {
+        OmdbRateLimiter rateLimiter = rateLimiter("3", "1000", "0");
+
+        assertThat(rateLimiter.tryAcquire(Priority.SEARCH)).isTrue();
+        assertThat(rateLimiter.tryAcquire(Priority.SEARCH)).isTrue();
+        assertThat(rateLimiter.tryAcquire(Priority.SEARCH)).isTrue();
+        assertThat(rateLimiter.tryAcquire(Priority.SEARCH)).isFalse();
+    }
+
+    // waiting callers get a permit once the bucket refills within the max wait
+    @Test
+    void acquireWaitsForTheBucketToRefill() {
+        OmdbRateLimiter rateLimiter = rateLimiter("100", "1000", "0");
+        for (int i = 0; i < 100; i++)
+            rateLimiter.tryAcquire(Priority.DETAIL);
+
+        assertThat(rateLimiter.acquire(Priority.DETAIL)).isTrue();
+    }
+
+    // the end of the daily budget is kept for searches
+    @Test
+    void detailCallsCannotSpendTheSearchReserve() {
+        OmdbRateLimiter rateLimiter = rateLimiter("100", "3", "1");
+
+        assertThat(rateLimiter.tryAcquire(Priority.DETAIL)).isTrue();
+        assertThat(rateLimiter.tryAcquire(Priority.DETAIL)).isTrue();
+        assertThat(rateLimiter.acquire(Priority.DETAIL)).isFalse();
+        assertThat(rateLimiter.acquire(Priority.SEARCH)).isTrue();
+
+        assertThat(rateLimiter.getRemainingToday()).isZero();
+        assertThat(rateLimiter.acquire(Priority.SEARCH)).isFalse();
+    }
+
+    // a rate below one per second, as a daily quota spread over the day needs,
+    // still lets a call through once a whole permit has built up
+    @Test
+    void ratesBelowOnePerSecondStillGrantPermits() {
+        OmdbRateLimiter rateLimiter = rateLimiter("0.5", "1000", "0");
+
+        assertThat(rateLimiter.tryAcquire(Priority.SEARCH)).isTrue();
+        assertThat(rateLimiter.tryAcquire(Priority.SEARCH)).isFalse();
+    }
+}
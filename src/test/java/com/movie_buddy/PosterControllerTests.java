@@ -0,0 +1,148 @@
+package com.movie_buddy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import mockwebserver3.Dispatcher;
+import mockwebserver3.MockResponse;
+import mockwebserver3.MockWebServer;
+import mockwebserver3.RecordedRequest;
+import okio.Buffer;
+
+// posters served from the disk cache, against a local stand-in for omdb and
+// the poster host
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+public class PosterControllerTests {
+
+    private static final MockWebServer omdb = new MockWebServer();
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MovieService movieService;
+
+    @DynamicPropertySource
+    static void omdbProperties(DynamicPropertyRegistry registry) throws IOException {
+        byte[] poster = fullSizePoster();
+
+        omdb.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                if (request.getPath().startsWith("/poster.jpg"))
+                    return new MockResponse().setBody(new Buffer().write(poster));
+                if (request.getPath().startsWith("/missing.jpg"))
+                    return new MockResponse().setResponseCode(404);
+                if (request.getPath().contains("tt0078748"))
+                    return new MockResponse().setBody("{\"Title\":\"Alien\",\"Year\":\"1979\",\"Poster\":\""
+                            + omdb.url("/missing.jpg") + "\",\"imdbID\":\"tt0078748\",\"Response\":\"True\"}");
+
+                return new MockResponse().setBody("{\"Title\":\"Casablanca\",\"Year\":\"1942\",\"Poster\":\""
+                        + omdb.url("/poster.jpg") + "\",\"imdbID\":\"tt0034583\",\"Response\":\"True\"}");
+            }
+        });
+        omdb.start();
+        registry.add("omdb.api.url", () -> omdb.url("/").toString());
+        registry.add("movie.posters.directory", () -> {
+            try {
+                return Files.createTempDirectory("posters").toString();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    private static byte[] fullSizePoster() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(600, 850, BufferedImage.TYPE_INT_RGB), "jpg", out);
+        return out.toByteArray();
+    }
+
+    @AfterAll
+    static void stopOmdb() throws IOException {
+        omdb.shutdown();
+    }
+
+    // downloaded once, scaled down, then revalidated by modification time
+    @Test
+    void postersAreResizedAndCachedForLong() throws Exception {
+        int requests = omdb.getRequestCount();
+        movieService.fetchMovieWithDetails("tt0034583").get(5, TimeUnit.SECONDS);
+
+        MvcResult first = mockMvc.perform(MockMvcRequestBuilders.get("/posters/tt0034583"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType(MediaType.IMAGE_JPEG))
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.CACHE_CONTROL, "max-age=2592000, public"))
+                .andReturn();
+
+        BufferedImage thumbnail = ImageIO.read(new ByteArrayInputStream(first.getResponse().getContentAsByteArray()));
+        assertThat(thumbnail.getWidth()).isEqualTo(300);
+        assertThat(thumbnail.getHeight()).isEqualTo(425);
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/posters/tt0034583")
+                .header(HttpHeaders.IF_MODIFIED_SINCE, first.getResponse().getHeader(HttpHeaders.LAST_MODIFIED)))
+                .andExpect(MockMvcResultMatchers.status().isNotModified());
+
+        assertThat(omdb.getRequestCount()).isEqualTo(requests + 2);
+    }
+
+    @Test
+    void unknownImdbIDsGetThePlaceholder() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/posters/..%2Fsecrets"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType(MediaType.IMAGE_PNG))
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.CACHE_CONTROL, "max-age=3600, public"));
+    }
+
+    // movies not looked up before are never looked up on omdb for their poster
+    @Test
+    void postersOfUnknownMoviesAreNotLookedUp() throws Exception {
+        int requests = omdb.getRequestCount();
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/posters/tt9999999"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType(MediaType.IMAGE_PNG));
+
+        assertThat(omdb.getRequestCount()).isEqualTo(requests);
+    }
+
+    // a poster the host could not serve is not asked for again while its
+    // placeholder may still be reused
+    @Test
+    void failedPostersAreNotFetchedAgainRightAway() throws Exception {
+        movieService.fetchMovieWithDetails("tt0078748").get(5, TimeUnit.SECONDS);
+        int requests = omdb.getRequestCount();
+
+        for (int i = 0; i < 2; i++)
+            mockMvc.perform(MockMvcRequestBuilders.get("/posters/tt0078748"))
+                    .andExpect(MockMvcResultMatchers.status().isOk())
+                    .andExpect(MockMvcResultMatchers.content().contentType(MediaType.IMAGE_PNG));
+
+        assertThat(omdb.getRequestCount()).isEqualTo(requests + 1);
+    }
+}
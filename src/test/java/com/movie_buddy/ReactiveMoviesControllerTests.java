@@ -0,0 +1,133 @@
+package com.movie_buddy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.http.CacheControl;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import mockwebserver3.Dispatcher;
+import mockwebserver3.MockResponse;
+import mockwebserver3.MockWebServer;
+import mockwebserver3.RecordedRequest;
+
+// the reactive profile end to end, against a local stand-in for omdb
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("reactive")
+@AutoConfigureTestDatabase
+public class ReactiveMoviesControllerTests {
+
+    private static final MockWebServer omdb = new MockWebServer();
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @DynamicPropertySource
+    static void omdbProperties(DynamicPropertyRegistry registry) throws IOException {
+        omdb.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                String title = request.getRequestUrl().queryParameter("s");
+                if ("zzzz".equals(title))
+                    return new MockResponse().setBody("{\"Response\":\"False\",\"Error\":\"Movie not found!\"}");
+                if (title != null)
+                    return new MockResponse().setBody(
+                            "{\"Search\":[{\"imdbID\":\"tt0034583\"},{\"imdbID\":\"tt0000000\"}],\"totalResults\":\"2\",\"Response\":\"True\"}");
+                if ("tt0000000".equals(request.getRequestUrl().queryParameter("i")))
+                    return new MockResponse().setBody("{\"Response\":\"False\",\"Error\":\"Incorrect IMDb ID.\"}");
+
+                return new MockResponse().setBody(
+                        "{\"Title\":\"Casablanca\",\"Year\":\"1942\",\"Poster\":\"N/A\",\"imdbRating\":\"8.5\",\"imdbID\":\"tt0034583\",\"Response\":\"True\"}");
+            }
+        });
+        omdb.start();
+        registry.add("omdb.api.url", () -> omdb.url("/").toString());
+        // one movie a page, so the two search results are on separate pages
+        registry.add("movie.search.page-size", () -> "1");
+    }
+
+    @AfterAll
+    static void stopOmdb() throws IOException {
+        omdb.shutdown();
+    }
+
+    // movies omdb has details for are rendered; unknown imdbIDs are dropped
+    @Test
+    void moviesEndPointRendersMovieDetails() {
+        String page = webTestClient.get().uri("/movies?title=casablanca")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class)
+                .returnResult().getResponseBody();
+
+        assertThat(page).contains("Casablanca");
+        assertThat(page).doesNotContain("missing-results");
+    }
+
+    @Test
+    void repeatedSearchesAreNotModified() {
+        String etag = webTestClient.get().uri("/movies?title=casablanca")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().cacheControl(CacheControl.maxAge(Duration.ofMinutes(5)).cachePublic())
+                .returnResult(String.class)
+                .getResponseHeaders().getETag();
+
+        webTestClient.get().uri("/movies?title=casablanca")
+                .ifNoneMatch(etag)
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectBody().isEmpty();
+    }
+
+    @Test
+    void moviesEndPointReportsNothingFound() {
+        String page = webTestClient.get().uri("/movies?title=zzzz")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class)
+                .returnResult().getResponseBody();
+
+        assertThat(page).doesNotContain("Casablanca");
+        assertThat(page).contains("No movies found");
+    }
+
+    @Test
+    void streamEndPointSendsRenderedMovieCardsThenDone() {
+        String events = webTestClient.get().uri("/movies/stream?title=casablanca")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class)
+                .returnResult().getResponseBody();
+
+        assertThat(events).contains("event:movie");
+        assertThat(events).contains("Casablanca");
+        assertThat(events).contains("event:done\ndata:1");
+    }
+
+    // the stream only looks up the requested page's movies, and links to the
+    // other pages first
+    @Test
+    void streamEndPointSendsTheRequestedPage() {
+        String events = webTestClient.get().uri("/movies/stream?title=casablanca&page=2")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class)
+                .returnResult().getResponseBody();
+
+        assertThat(events).doesNotContain("Casablanca");
+        assertThat(events).contains("event:pages\ndata:{\"page\":2,\"totalPages\":2,\"previousURL\":\"/movies?title=casablanca\",\"nextURL\":null}");
+        assertThat(events).contains("event:done\ndata:0");
+    }
+}
@@ -1,21 +1,27 @@
 package com.movie_buddy;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import java.io.IOException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
 import org.springframework.core.env.Environment;
+import org.springframework.mock.env.MockEnvironment;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import mockwebserver3.MockResponse;
 import mockwebserver3.MockWebServer;
 import okhttp3.OkHttpClient;
@@ -24,6 +30,7 @@ import okhttp3.Response;
 
 @SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
 @AutoConfigureMockMvc
+@AutoConfigureTestDatabase
 public class RequestHandlerTests {
 
     private MockWebServer mockWebServer;
@@ -91,4 +98,145 @@ public class RequestHandlerTests {
         assertThat(expectedResponseFuture).isEqualTo(actualResponseFuture);
         assertThat(responseBody).contains("Title");
     }
+
+    // the dispatcher's per-host limit comes from omdb.client.max-requests-per-host,
+    // and calls beyond it are reported as queued rather than running
+    @Test
+    void detailedResponsesBeyondThePerHostLimitAreQueued() throws Exception {
+        mockWebServer.enqueue(new MockResponse().setBody("{}").setHeadersDelay(1, TimeUnit.SECONDS));
+        mockWebServer.enqueue(new MockResponse().setBody("{}"));
+
+        RequestHandler requestHandler = new RequestHandler(new MockEnvironment()
+                .withProperty("omdb.client.max-requests-per-host", "1"));
+
+        CompletableFuture<String> first = requestHandler.getDetailedResponse(mockWebServer.url("/").toString());
+        CompletableFuture<String> second = requestHandler.getDetailedResponse(mockWebServer.url("/").toString());
+
+        assertThat(requestHandler.getRunningCallCount()).isEqualTo(1);
+        assertThat(requestHandler.getQueuedCallCount()).isEqualTo(1);
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("{}");
+        assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("{}");
+    }
+
+    // once enough of the latest calls fail the breaker opens, and further calls
+    // fail right away without reaching omdb
+    @Test
+    void callsAreRefusedOnceTheBreakerOpens() throws Exception {
+        for (int i = 0; i < 4; i++)
+            mockWebServer.enqueue(new MockResponse().setResponseCode(503));
+
+        RequestHandler requestHandler = new RequestHandler(new MockEnvironment()
+                .withProperty("omdb.client.breaker.window", "4")
+                .withProperty("omdb.client.breaker.minimum-calls", "4"));
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        requestHandler.bindTo(meterRegistry);
+
+        for (int i = 0; i < 4; i++) {
+            CompletableFuture<String> failing = requestHandler.getDetailedResponse(mockWebServer.url("/").toString());
+            assertThatThrownBy(() -> failing.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(IOException.class);
+        }
+
+        CompletableFuture<String> refused = requestHandler.getDetailedResponse(mockWebServer.url("/").toString());
+        assertThatThrownBy(() -> refused.get(1, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(UpstreamUnavailableException.class);
+        assertThatThrownBy(() -> requestHandler.getInitialResponse(mockWebServer.url("/").toString()))
+                .isInstanceOf(UpstreamUnavailableException.class);
+
+        assertThat(mockWebServer.getRequestCount()).isEqualTo(4);
+        assertThat(requestHandler.getCircuitBreaker().getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(meterRegistry.get("omdb.client.breaker.state").tag("state", "open").gauge().value()).isEqualTo(1);
+        assertThat(meterRegistry.counter("omdb.client.rejected", "reason", "breaker").count()).isEqualTo(2);
+    }
+
+    // calls slower than the threshold shrink the concurrency limit, and calls
+    // beyond it are refused instead of queueing behind the slow ones
+    @Test
+    void slowCallsLowerTheConcurrencyLimit() throws Exception {
+        for (int i = 0; i < 3; i++)
+            mockWebServer.enqueue(new MockResponse().setBody("{}").setHeadersDelay(200, TimeUnit.MILLISECONDS));
+
+        MockEnvironment slowCallEnvironment = new MockEnvironment()
+                .withProperty("omdb.client.slow-call-threshold", "100ms")
+                .withProperty("omdb.client.limit.initial", "4")
+                .withProperty("omdb.client.limit.minimum", "1")
+                .withProperty("omdb.client.limit.backoff-ratio", "0.5")
+                .withProperty("omdb.client.breaker.enabled", "false");
+        slowCallEnvironment.setConversionService(new ApplicationConversionService());
+        RequestHandler requestHandler = new RequestHandler(slowCallEnvironment);
+
+        for (int i = 0; i < 3; i++)
+            assertThat(requestHandler.getDetailedResponse(mockWebServer.url("/").toString()).get(5, TimeUnit.SECONDS))
+                    .isEqualTo("{}");
+        assertThat(requestHandler.getConcurrencyLimit().getLimit()).isEqualTo(1);
+
+        mockWebServer.enqueue(new MockResponse().setBody("{}").setHeadersDelay(200, TimeUnit.MILLISECONDS));
+        CompletableFuture<String> admitted = requestHandler.getDetailedResponse(mockWebServer.url("/").toString());
+        CompletableFuture<String> refused = requestHandler.getDetailedResponse(mockWebServer.url("/").toString());
+
+        assertThatThrownBy(() -> refused.get(1, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(UpstreamUnavailableException.class);
+        assertThat(admitted.get(5, TimeUnit.SECONDS)).isEqualTo("{}");
+        assertThat(requestHandler.getConcurrencyLimit().getInFlight()).isZero();
+    }
+
+    // a call waiting on the rate limiter holds no concurrency slot, so it is not
+    // refused while calls already sent take up the limit
+    @Test
+    void callsWaitingForAPermitDoNotTakeAConcurrencySlot() throws Exception {
+        mockWebServer.enqueue(new MockResponse().setBody("{}").setHeadersDelay(200, TimeUnit.MILLISECONDS));
+        mockWebServer.enqueue(new MockResponse().setBody("{}"));
+
+        MockEnvironment rateLimitedEnvironment = new MockEnvironment()
+                .withProperty("omdb.rate-limit.requests-per-second", "1")
+                .withProperty("omdb.rate-limit.max-wait", "5s")
+                .withProperty("omdb.client.limit.initial", "1")
+                .withProperty("omdb.client.limit.minimum", "1")
+                .withProperty("omdb.client.limit.maximum", "1")
+                .withProperty("omdb.client.breaker.enabled", "false");
+        rateLimitedEnvironment.setConversionService(new ApplicationConversionService());
+        RequestHandler requestHandler = new RequestHandler(rateLimitedEnvironment,
+                new OmdbRateLimiter(rateLimitedEnvironment));
+
+        CompletableFuture<String> sent = requestHandler.getDetailedResponse(mockWebServer.url("/").toString());
+        CompletableFuture<String> waiting = requestHandler.getDetailedResponse(mockWebServer.url("/").toString());
+        assertThat(requestHandler.getConcurrencyLimit().getInFlight()).isEqualTo(1);
+
+        assertThat(sent.get(5, TimeUnit.SECONDS)).isEqualTo("{}");
+        assertThat(waiting.get(5, TimeUnit.SECONDS)).isEqualTo("{}");
+        assertThat(requestHandler.getConcurrencyLimit().getInFlight()).isZero();
+        requestHandler.close();
+    }
+
+    // a call refused by the open breaker never reaches omdb, so it hands its
+    // permit back and leaves the day's budget as it was
+    @Test
+    void callsRefusedByTheBreakerDoNotSpendTheDailyBudget() throws Exception {
+        for (int i = 0; i < 2; i++)
+            mockWebServer.enqueue(new MockResponse().setResponseCode(503));
+
+        MockEnvironment breakerEnvironment = new MockEnvironment()
+                .withProperty("omdb.client.breaker.window", "2")
+                .withProperty("omdb.client.breaker.minimum-calls", "2");
+        breakerEnvironment.setConversionService(new ApplicationConversionService());
+        OmdbRateLimiter rateLimiter = new OmdbRateLimiter(breakerEnvironment);
+        RequestHandler requestHandler = new RequestHandler(breakerEnvironment, rateLimiter);
+
+        for (int i = 0; i < 2; i++) {
+            CompletableFuture<String> failing = requestHandler.getDetailedResponse(mockWebServer.url("/").toString());
+            assertThatThrownBy(() -> failing.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(IOException.class);
+        }
+        assertThat(requestHandler.getCircuitBreaker().getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        long remaining = rateLimiter.getRemainingToday();
+
+        CompletableFuture<String> refused = requestHandler.getDetailedResponse(mockWebServer.url("/").toString());
+        assertThatThrownBy(() -> refused.get(1, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(UpstreamUnavailableException.class);
+        assertThatThrownBy(() -> requestHandler.getInitialResponse(mockWebServer.url("/").toString()))
+                .isInstanceOf(UpstreamUnavailableException.class);
+
+        assertThat(rateLimiter.getRemainingToday()).isEqualTo(remaining);
+        assertThat(mockWebServer.getRequestCount()).isEqualTo(2);
+        requestHandler.close();
+    }
 }
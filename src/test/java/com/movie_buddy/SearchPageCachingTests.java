@@ -0,0 +1,86 @@
+package com.movie_buddy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.when;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+public class SearchPageCachingTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private MovieService movieService;
+
+    private Movie casablanca(Instant fetchedAt) throws Exception {
+        Movie movie = OmdbResponseReader.readMovie("{\"Title\":\"Casablanca\",\"Year\":\"1942\",\"Poster\":\"N/A\",\"imdbRating\":\"8.5\",\"imdbID\":\"tt0034583\",\"Response\":\"True\"}");
+        movie.setFetchedAt(fetchedAt);
+        return movie;
+    }
+
+    private MvcResult search(String ifNoneMatch) throws Exception {
+        var request = MockMvcRequestBuilders.get("/movies").param("title", "casablanca");
+        if (ifNoneMatch != null)
+            request.header(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        return mockMvc.perform(request).andReturn();
+    }
+
+    // a repeated search for unchanged movies is answered without a body
+    @Test
+    void repeatedSearchesAreNotModifiedUntilAMovieIsFetchedAgain() throws Exception {
+        when(movieService.getMoviesWithIds(anyString(), isNull(), eq(MovieSearchIndex.Field.TITLE)))
+                .thenReturn(List.of("tt0034583"));
+        when(movieService.getMovieResults(anyList()))
+                .thenReturn(new MovieResults(List.of(casablanca(Instant.ofEpochMilli(1))), List.of()));
+
+        MvcResult first = search(null);
+        String etag = first.getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(etag).isNotNull();
+        assertThat(first.getResponse().getHeader(HttpHeaders.CACHE_CONTROL)).isEqualTo("max-age=300, public");
+        assertThat(first.getResponse().getContentAsString()).contains("Casablanca");
+
+        MvcResult repeat = search(etag);
+        assertThat(repeat.getResponse().getStatus()).isEqualTo(304);
+        assertThat(repeat.getResponse().getContentAsString()).isEmpty();
+
+        when(movieService.getMovieResults(anyList()))
+                .thenReturn(new MovieResults(List.of(casablanca(Instant.ofEpochMilli(2))), List.of()));
+
+        MvcResult refreshed = search(etag);
+        assertThat(refreshed.getResponse().getStatus()).isEqualTo(200);
+        assertThat(refreshed.getResponse().getHeader(HttpHeaders.ETAG)).isNotEqualTo(etag);
+    }
+
+    @Test
+    void partialResultsAreRevalidatedEveryTime() throws Exception {
+        when(movieService.getMoviesWithIds(anyString(), isNull(), eq(MovieSearchIndex.Field.TITLE)))
+                .thenReturn(List.of("tt0034583", "tt0000000"));
+        when(movieService.getMovieResults(anyList()))
+                .thenReturn(new MovieResults(List.of(casablanca(null)), List.of("tt0000000")));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/movies").param("title", "casablanca"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.CACHE_CONTROL, "no-cache"));
+    }
+}
@@ -0,0 +1,33 @@
+package com.movie_buddy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class SearchPageTests {
+
+    private static final List<String> MOVIE_IDS = List.of("tt01", "tt02", "tt03", "tt04", "tt05");
+
+    @Test
+    void pagesSliceTheMovieIDsInOrder() {
+        SearchPage lastPage = SearchPage.of(MOVIE_IDS, 3, 2);
+
+        assertThat(lastPage.movieIDs()).containsExactly("tt05");
+        assertThat(lastPage.totalPages()).isEqualTo(3);
+        assertThat(lastPage.hasPrevious()).isTrue();
+        assertThat(lastPage.hasNext()).isFalse();
+    }
+
+    // a page past the end shows the last page rather than nothing
+    @Test
+    void pagesOutOfRangeAreClamped() {
+        assertThat(SearchPage.of(MOVIE_IDS, 9, 2).page()).isEqualTo(3);
+        assertThat(SearchPage.of(MOVIE_IDS, 0, 2).page()).isEqualTo(1);
+        assertThat(SearchPage.url("/movies", "the thing", null, MovieSearchIndex.Field.TITLE, 2))
+                .isEqualTo("/movies?title=the%20thing&page=2");
+        assertThat(SearchPage.url("/movies", "kurt russell", null, MovieSearchIndex.Field.ACTORS, 1))
+                .isEqualTo("/movies?title=kurt%20russell&searchIn=actors");
+    }
+}
@@ -0,0 +1,140 @@
+package com.movie_buddy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.mock.env.MockEnvironment;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+// two instances of the application, each with its own details cache and omdb
+// client, sharing one in-memory store the way they would share redis
+public class SharedMovieCacheTests {
+
+    private static final String CASABLANCA = "{\"Title\":\"Casablanca\",\"Year\":\"1942\",\"imdbID\":\"tt0034583\",\"Response\":\"True\"}";
+
+    private final MockEnvironment environment = sharedCacheEnvironment();
+
+    private final InMemoryCacheStore store = new InMemoryCacheStore();
+
+    private final Instance first = new Instance();
+
+    private final Instance second = new Instance();
+
+    private static MockEnvironment sharedCacheEnvironment() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("movie.cache.shared.time-to-live", "1h");
+        environment.setConversionService(new ApplicationConversionService());
+        return environment;
+    }
+
+    private class Instance {
+
+        final MovieDetailsCache detailsCache = new MovieDetailsCache(environment);
+
+        final SharedMovieCache sharedCache = new SharedMovieCache(detailsCache, store, environment);
+
+        final RequestHandler requestHandler = mock(RequestHandler.class);
+
+        final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+        final MovieService movieService = new MovieService(environment);
+
+        Instance() {
+            when(requestHandler.getDetailedResponse(anyString()))
+                    .thenAnswer(invocation -> CompletableFuture.completedFuture(CASABLANCA));
+            sharedCache.bindTo(meterRegistry);
+            movieService.setRequestHandler(requestHandler);
+            movieService.setDetailsCache(detailsCache);
+            movieService.setSharedCache(sharedCache);
+        }
+    }
+
+    // a movie one instance fetched is served to the other without calling omdb
+    @Test
+    void moviesFetchedByOneInstanceAreServedToTheOthers() throws Exception {
+        first.movieService.getMoviesWithDetails(List.of("tt0034583"));
+        List<Movie> movies = second.movieService.getMoviesWithDetails(List.of("tt0034583"));
+
+        verify(second.requestHandler, never()).getDetailedResponse(anyString());
+        assertThat(movies).extracting(Movie::getTitle).containsExactly("Casablanca");
+        assertThat(second.detailsCache.contains("tt0034583")).isTrue();
+        assertThat(second.meterRegistry.counter("movie.cache.shared.requests", "result", "hit").count())
+                .isEqualTo(1);
+    }
+
+    // fetching a movie again drops the copies other instances hold locally, and
+    // their next lookup reads the new details, and renders a new card, from the
+    // shared cache
+    @Test
+    void fetchingAMovieAgainInvalidatesOtherInstancesLocalCopies() throws Exception {
+        first.movieService.getMoviesWithDetails(List.of("tt0034583"));
+        Movie before = second.movieService.getMoviesWithDetails(List.of("tt0034583")).get(0);
+
+        Thread.sleep(5);
+        Movie refreshed = first.movieService.fetchMovieWithDetails("tt0034583").get(1, TimeUnit.SECONDS);
+
+        assertThat(second.detailsCache.contains("tt0034583")).isFalse();
+        assertThat(first.detailsCache.contains("tt0034583")).isTrue();
+        Movie after = second.movieService.getMoviesWithDetails(List.of("tt0034583")).get(0);
+        assertThat(MovieCardRenderer.version(after))
+                .isEqualTo(MovieCardRenderer.version(refreshed))
+                .isNotEqualTo(MovieCardRenderer.version(before));
+        verify(second.requestHandler, never()).getDetailedResponse(anyString());
+    }
+
+    // the shared cache is only an optimization, so a store that cannot be
+    // reached sends lookups to omdb
+    @Test
+    void lookupsFallBackToOmdbWhenTheStoreFails() throws Exception {
+        SharedCacheStore failingStore = mock(SharedCacheStore.class);
+        when(failingStore.getAll(anyList())).thenThrow(new IllegalStateException("Connection refused"));
+        SharedMovieCache sharedCache = new SharedMovieCache(first.detailsCache, failingStore, environment);
+        sharedCache.bindTo(first.meterRegistry);
+        first.movieService.setSharedCache(sharedCache);
+
+        List<Movie> movies = first.movieService.getMoviesWithDetails(List.of("tt0034583"));
+
+        assertThat(movies).extracting(Movie::getTitle).containsExactly("Casablanca");
+        verify(first.requestHandler, times(1)).getDetailedResponse(anyString());
+        assertThat(first.meterRegistry.counter("movie.cache.shared.requests", "result", "error").count())
+                .isEqualTo(1);
+    }
+
+    // an unreachable redis does not stop the application from starting; the
+    // shared tier is skipped until it can be reached
+    @Test
+    void anUnreachableRedisLeavesTheSharedTierOff() throws Exception {
+        MockEnvironment redisEnvironment = sharedCacheEnvironment()
+                .withProperty("movie.cache.shared.enabled", "true")
+                .withProperty("movie.cache.shared.store", "redis")
+                .withProperty("movie.cache.shared.url", "redis://localhost:1")
+                .withProperty("movie.cache.shared.timeout", "100ms");
+        SharedMovieCache sharedCache = new SharedMovieCache(first.detailsCache, redisEnvironment);
+        try {
+            sharedCache.bindTo(first.meterRegistry);
+            first.movieService.setSharedCache(sharedCache);
+
+            List<Movie> movies = first.movieService.getMoviesWithDetails(List.of("tt0034583"));
+
+            assertThat(movies).extracting(Movie::getTitle).containsExactly("Casablanca");
+            // the lookup and the write of the fetched movie both fail
+            assertThat(first.meterRegistry.counter("movie.cache.shared.requests", "result", "error").count())
+                    .isEqualTo(2);
+        } finally {
+            sharedCache.close();
+        }
+    }
+}